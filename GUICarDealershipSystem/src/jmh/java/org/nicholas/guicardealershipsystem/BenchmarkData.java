@@ -0,0 +1,135 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * BenchmarkData.java
+ * This class makes the SQLite databases and cars that the benchmarks use. The cars
+ * are random but always the same for the same number of rows, and each database is
+ * only made once in target/jmh-data and then reused by later runs.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkData {
+    static final String[] MAKES = {"Toyota", "Honda", "Ford", "Chevrolet", "BMW", "Tesla", "Nissan", "Kia"};
+    static final String[] COLORS = {"Red", "Blue", "Black", "White", "Silver", "Gray"};
+    static final String[] ENGINES = {"I4", "V6", "V8", "Electric"};
+    static final String[] TRANSMISSIONS = {"Automatic", "Manual", "CVT"};
+
+    private static final Path DATA_DIRECTORY = Path.of("target", "jmh-data");
+    private static final String INSERT_SQL = "INSERT INTO Cars (id, year, make, model, color, engine, transmission, price, sold) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Name: cars
+     *
+     * @param rows  how many cars to make
+     * @param firstId the id of the first car
+     * @return the same random cars every time for the same arguments
+     */
+    static List<Car> cars(int rows, int firstId) {
+        Random random = new Random(rows * 31L + firstId);
+        List<Car> cars = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Car car = new Car(firstId + i, 1990 + random.nextInt(35), MAKES[random.nextInt(MAKES.length)],
+                    "Model " + random.nextInt(40), COLORS[random.nextInt(COLORS.length)],
+                    ENGINES[random.nextInt(ENGINES.length)], TRANSMISSIONS[random.nextInt(TRANSMISSIONS.length)],
+                    5000 + random.nextInt(9500000) / 100.0);
+            car.setSold(random.nextInt(4) == 0);
+            cars.add(car);
+        }
+        return cars;
+    }
+
+    /**
+     * Name: database
+     *
+     * @param rows how many cars the database should have
+     * @return a database with the Cars table, its indexes and that many cars
+     * @throws IOException
+     * @throws SQLException
+     */
+    static synchronized Path database(int rows) throws IOException, SQLException {
+        // The schema version is in the name so a database made before a migration is not reused
+        String name = "cars-" + rows + "-v" + SchemaMigrator.getLatestVersion() + ".db";
+        Path file = DATA_DIRECTORY.resolve(name);
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(DATA_DIRECTORY);
+        Path temporary = DATA_DIRECTORY.resolve(name + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (ConnectionPool pool = open(temporary, 1)) {
+            new CarRepository(pool).migrate();
+            insert(pool, cars(rows, 1));
+            try (PooledConnection connection = pool.borrow()) {
+                connection.getConnection().createStatement().execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    /**
+     * Name: copy
+     *
+     * @return a copy of the database that a benchmark can change
+     */
+    static Path copy(Path database, String name) throws IOException {
+        Path copy = DATA_DIRECTORY.resolve(name);
+        Files.deleteIfExists(DATA_DIRECTORY.resolve(name + "-wal"));
+        Files.deleteIfExists(DATA_DIRECTORY.resolve(name + "-shm"));
+        Files.copy(database, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    static ConnectionPool open(Path database, int connections) {
+        return new ConnectionPool("jdbc:sqlite:" + database, connections, ConnectionPool.defaultPragmas());
+    }
+
+    /**
+     * Name: insert
+     *
+     * Adds the cars with their own ids in one transaction, using batches.
+     */
+    static void insert(ConnectionPool pool, List<Car> cars) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            connection.inTransaction(() -> {
+                PreparedStatement statement = connection.prepare(INSERT_SQL);
+                int batched = 0;
+                for (Car car : cars) {
+                    statement.setInt(1, car.getId());
+                    statement.setInt(2, car.getYear());
+                    statement.setString(3, car.getMake());
+                    statement.setString(4, car.getModel());
+                    statement.setString(5, car.getColor());
+                    statement.setString(6, car.getEngine());
+                    statement.setString(7, car.getTransmissionType());
+                    statement.setDouble(8, car.getPrice());
+                    statement.setBoolean(9, car.isSold());
+                    statement.addBatch();
+                    if (++batched == 1000) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarFormatBenchmark.java
+ * This benchmark measures turning a car into the text that toString gives back,
+ * for a car that is only data and for one whose table properties were already made.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarFormatBenchmark {
+    private Car car;
+    private Car shownCar;
+
+    @Setup
+    public void setUp() {
+        car = new Car(1, 2020, "Toyota", "Camry", "Red", "V6", "Automatic", 25999.99);
+        shownCar = new Car(2, 2018, "Honda", "Civic", "Blue", "I4", "Manual", 18500.5);
+        // The table makes these when the car is shown
+        shownCar.makeProperty();
+        shownCar.priceProperty();
+    }
+
+    @Benchmark
+    public String carToString() {
+        return car.toString();
+    }
+
+    @Benchmark
+    public String shownCarToString() {
+        return shownCar.toString();
+    }
+}
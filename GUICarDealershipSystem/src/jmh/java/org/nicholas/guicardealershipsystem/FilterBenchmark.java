@@ -0,0 +1,100 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * FilterBenchmark.java
+ * This benchmark measures the ways of finding the cars that match the filter fields,
+ * like removeFilteredCars and the live filter do: checking every car with the filter,
+ * ANDing the bitmaps of the search index, and letting the database use its indexes.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    // year and make, like a typical Remove Filtered Cars
+    private final CarFilter exactFilter = new CarFilter("2015", "toyota", "", "");
+    // what the live filter makes after typing a few letters
+    private final CarFilter prefixFilter = new CarFilter("", "to", "model 1", "", true);
+    private final CarFilter rangeFilter = new CarFilter("", "", "", "").withYearRange(2015, 2020).withPriceRange(Double.NEGATIVE_INFINITY, 30000);
+
+    private List<Car> cars;
+    private InventoryIndex index;
+    private ConnectionPool pool;
+    private CarRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cars = BenchmarkData.cars(rows, 1);
+        index = new InventoryIndex();
+        index.carsLoaded(cars);
+        pool = BenchmarkData.open(BenchmarkData.database(rows), 2);
+        repository = new CarRepository(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public long scanExact() {
+        return cars.stream().filter(exactFilter::matches).count();
+    }
+
+    @Benchmark
+    public int indexExact() {
+        return index.count(exactFilter);
+    }
+
+    @Benchmark
+    public int sqlExact() throws Exception {
+        return repository.findMatching(exactFilter).size();
+    }
+
+    @Benchmark
+    public long scanPrefix() {
+        return cars.stream().filter(prefixFilter::matches).count();
+    }
+
+    @Benchmark
+    public BitSet indexPrefix() {
+        return index.findIds(prefixFilter);
+    }
+
+    @Benchmark
+    public long scanRange() {
+        return cars.stream().filter(rangeFilter::matches).count();
+    }
+
+    @Benchmark
+    public int indexRange() {
+        return index.count(rangeFilter);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * LoadBenchmark.java
+ * This benchmark measures reading cars from the database like loadCarsFile does:
+ * every car at once with the row mapping into Car objects, and one page of cars
+ * like the paged list does for big databases. Add
+ * -jvmArgsAppend -Dcardealership.load.mappers=N to the jmh args to compare how many
+ * threads make the Car objects.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private ConnectionPool pool;
+    private CarRepository repository;
+    private int middleId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = BenchmarkData.open(BenchmarkData.database(rows), 2);
+        repository = new CarRepository(pool);
+        middleId = rows / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public List<Car> findAll() throws Exception {
+        return repository.findAll(ProgressMonitor.NONE);
+    }
+
+    @Benchmark
+    public List<Car> findPage() throws Exception {
+        return repository.findPage(middleId, PagedCarList.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int count() throws Exception {
+        return repository.count();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * WriteBenchmark.java
+ * This benchmark measures adding and removing cars, one statement and commit per car
+ * compared to batches in one transaction. The scores are per car. Each run works on
+ * its own copy of the database so the generated databases are not changed.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+    private static final int BATCH = 500;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private ConnectionPool pool;
+    private CarRepository repository;
+    private List<Car> batch;
+    private Path importFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path copy = BenchmarkData.copy(BenchmarkData.database(rows), "write-" + rows + ".db");
+        pool = BenchmarkData.open(copy, 2);
+        repository = new CarRepository(pool);
+        // Ids after the generated cars so they can be added and removed again
+        batch = BenchmarkData.cars(BATCH, rows + 1);
+        importFile = copy.resolveSibling("import-" + BATCH + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(importFile)) {
+            writer.write("year,make,model,color,engine,transmission,price\n");
+            for (Car car : batch) {
+                writer.write(car.getYear() + "," + car.getMake() + "," + car.getModel() + "," + car.getColor() + ","
+                        + car.getEngine() + "," + car.getTransmissionType() + "," + car.getPrice() + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    // The cars to remove are put back before every call of the delete benchmarks
+    @State(Scope.Benchmark)
+    public static class Inserted {
+        @Setup(Level.Invocation)
+        public void insert(WriteBenchmark benchmark) throws Exception {
+            benchmark.repository.deleteAll(benchmark.batch);
+            BenchmarkData.insert(benchmark.pool, benchmark.batch);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void deleteOneByOne(Inserted inserted) throws Exception {
+        for (Car car : batch) {
+            repository.delete(car.getId());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int deleteBatched(Inserted inserted) throws Exception {
+        return repository.deleteAll(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertOneByOne() throws Exception {
+        for (Car car : batch) {
+            repository.insert(car);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public CarImporter.ImportResult insertBatched() throws Exception {
+        return new CarImporter(pool).importFile(importFile, ProgressMonitor.NONE);
+    }
+}
@@ -2,6 +2,9 @@ module org.nicholas.guicardealershipsystem {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.logging;
+    requires java.management;
+    requires java.prefs;
 
 
     opens org.nicholas.guicardealershipsystem to javafx.fxml;
@@ -1,101 +1,296 @@
-package org.nicholas.guicardealershipsystem;
-
-public class Car {
-    private int id;
-    private int year;
-    private String make;
-    private String model;
-    private String color;
-    private String engine;
-    private String transmissionType;
-    private double price;
-    private boolean sold;
-
-
-    //Car constructor
-    public Car(int id, int year, String make, String model, String color, String engine, String transmissionType, double price) {
-        this.id = id;
-        this.year = year;
-        this.make = make;
-        this.model = model;
-        this.color = color;
-        this.engine = engine;
-        this.transmissionType = transmissionType;
-        this.price = price;
-    }
-
-    // Getters and Setters for the cars attributes
-    public int getId() {
-        return id;
-    }
-
-    public int getYear() {
-        return year;
-    }
-
-    public void setYear(int year) {
-        this.year = year;
-    }
-
-    public String getMake() {
-        return make;
-    }
-
-    public void setMake(String make) {
-        this.make = make;
-    }
-
-    public String getModel() {
-        return model;
-    }
-
-    public void setModel(String model) {
-        this.model = model;
-    }
-
-    public String getColor() {
-        return color;
-    }
-
-    public void setColor(String color) {
-        this.color = color;
-    }
-
-    public String getEngine() {
-        return engine;
-    }
-
-    public void setEngine(String engine) {
-        this.engine = engine;
-    }
-
-    public String getTransmissionType() {
-        return transmissionType;
-    }
-
-    public void setTransmissionType(String transmissionType) {
-        this.transmissionType = transmissionType;
-    }
-
-    public double getPrice() {
-        return price;
-    }
-
-    public void setPrice(double price) {
-        this.price = price;
-    }
-
-    public boolean isSold() {
-        return sold;
-    }
-
-    public void setSold(boolean sold) {
-        this.sold = sold;
-    }
-
-    //To show the cars in the file
-    @Override
-    public String toString(){
-        return "ID: " + id + ", Year: " + year + ", Make: " + make + ", Model: " + model + ", Color: " + color + ", Engine: " + engine + ", Transmission: " + transmissionType + ", Price: $" + String.format("%.2f",price);
-    }
-}
\ No newline at end of file
+package org.nicholas.guicardealershipsystem;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+public class Car {
+    private int id;
+    private int year;
+    private String make;
+    private String model;
+    private String color;
+    private String engine;
+    private String transmissionType;
+    private double price;
+    private boolean sold;
+    // Goes up by one every time the car is saved, an edit only saves if nobody else saved in between
+    private int version;
+    // True for a sold car that was moved to the CarsArchive table, it can not be changed anymore
+    private boolean archived;
+
+    // The JavaFX properties are only made when the table asks for them, so loading
+    // lots of cars stays cheap. Once a property is made it holds the value. They are
+    // kept in their own object so a car that was never shown only has one empty field
+    // for them instead of nine.
+    private Properties properties;
+
+    private static class Properties {
+        private ReadOnlyIntegerWrapper id;
+        private IntegerProperty year;
+        private StringProperty make;
+        private StringProperty model;
+        private StringProperty color;
+        private StringProperty engine;
+        private StringProperty transmissionType;
+        private DoubleProperty price;
+        private BooleanProperty sold;
+    }
+
+
+    //Car constructor
+    public Car(int id, int year, String make, String model, String color, String engine, String transmissionType, double price) {
+        this.id = id;
+        this.year = year;
+        this.make = make;
+        this.model = model;
+        this.color = color;
+        this.engine = engine;
+        this.transmissionType = transmissionType;
+        this.price = price;
+    }
+
+    /**
+     * Name: fromFields
+     *
+     * Makes a car from what was typed in the add or edit dialog or read from a batch file.
+     *
+     * @return the car with the values that were given
+     * @throws NumberFormatException    if the year or price is not a number
+     * @throws IllegalArgumentException if one of the fields is empty
+     */
+    public static Car fromFields(int id, String year, String make, String model, String color, String engine, String transmissionType, String price) {
+        String[] fields = {year, make, model, color, engine, transmissionType, price};
+        for (String field : fields) {
+            if (field == null || field.trim().isEmpty()) {
+                throw new IllegalArgumentException("Please fill in all fields.");
+            }
+        }
+        return new Car(id, Integer.parseInt(year.trim()), make.trim(), model.trim(), color.trim(), engine.trim(),
+                transmissionType.trim(), Double.parseDouble(price.trim()));
+    }
+
+    // Getters and Setters for the cars attributes
+    public int getId() {
+        return id;
+    }
+
+    public int getYear() {
+        return properties == null || properties.year == null ? year : properties.year.get();
+    }
+
+    public void setYear(int year) {
+        if (properties == null || properties.year == null) {
+            this.year = year;
+        } else {
+            properties.year.set(year);
+        }
+    }
+
+    public String getMake() {
+        return properties == null || properties.make == null ? make : properties.make.get();
+    }
+
+    public void setMake(String make) {
+        if (properties == null || properties.make == null) {
+            this.make = make;
+        } else {
+            properties.make.set(make);
+        }
+    }
+
+    public String getModel() {
+        return properties == null || properties.model == null ? model : properties.model.get();
+    }
+
+    public void setModel(String model) {
+        if (properties == null || properties.model == null) {
+            this.model = model;
+        } else {
+            properties.model.set(model);
+        }
+    }
+
+    public String getColor() {
+        return properties == null || properties.color == null ? color : properties.color.get();
+    }
+
+    public void setColor(String color) {
+        if (properties == null || properties.color == null) {
+            this.color = color;
+        } else {
+            properties.color.set(color);
+        }
+    }
+
+    public String getEngine() {
+        return properties == null || properties.engine == null ? engine : properties.engine.get();
+    }
+
+    public void setEngine(String engine) {
+        if (properties == null || properties.engine == null) {
+            this.engine = engine;
+        } else {
+            properties.engine.set(engine);
+        }
+    }
+
+    public String getTransmissionType() {
+        return properties == null || properties.transmissionType == null ? transmissionType : properties.transmissionType.get();
+    }
+
+    public void setTransmissionType(String transmissionType) {
+        if (properties == null || properties.transmissionType == null) {
+            this.transmissionType = transmissionType;
+        } else {
+            properties.transmissionType.set(transmissionType);
+        }
+    }
+
+    public double getPrice() {
+        return properties == null || properties.price == null ? price : properties.price.get();
+    }
+
+    public void setPrice(double price) {
+        if (properties == null || properties.price == null) {
+            this.price = price;
+        } else {
+            properties.price.set(price);
+        }
+    }
+
+    public boolean isSold() {
+        return properties == null || properties.sold == null ? sold : properties.sold.get();
+    }
+
+    public void setSold(boolean sold) {
+        if (properties == null || properties.sold == null) {
+            this.sold = sold;
+        } else {
+            properties.sold.set(sold);
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    // Properties for the TableView columns, setting a value updates the cells showing it
+    public ReadOnlyIntegerProperty idProperty() {
+        Properties made = properties();
+        if (made.id == null) {
+            made.id = new ReadOnlyIntegerWrapper(this, "id", id);
+        }
+        return made.id.getReadOnlyProperty();
+    }
+
+    public IntegerProperty yearProperty() {
+        Properties made = properties();
+        if (made.year == null) {
+            made.year = new SimpleIntegerProperty(this, "year", year);
+        }
+        return made.year;
+    }
+
+    public StringProperty makeProperty() {
+        Properties made = properties();
+        if (made.make == null) {
+            made.make = new SimpleStringProperty(this, "make", make);
+        }
+        return made.make;
+    }
+
+    public StringProperty modelProperty() {
+        Properties made = properties();
+        if (made.model == null) {
+            made.model = new SimpleStringProperty(this, "model", model);
+        }
+        return made.model;
+    }
+
+    public StringProperty colorProperty() {
+        Properties made = properties();
+        if (made.color == null) {
+            made.color = new SimpleStringProperty(this, "color", color);
+        }
+        return made.color;
+    }
+
+    public StringProperty engineProperty() {
+        Properties made = properties();
+        if (made.engine == null) {
+            made.engine = new SimpleStringProperty(this, "engine", engine);
+        }
+        return made.engine;
+    }
+
+    public StringProperty transmissionTypeProperty() {
+        Properties made = properties();
+        if (made.transmissionType == null) {
+            made.transmissionType = new SimpleStringProperty(this, "transmissionType", transmissionType);
+        }
+        return made.transmissionType;
+    }
+
+    public DoubleProperty priceProperty() {
+        Properties made = properties();
+        if (made.price == null) {
+            made.price = new SimpleDoubleProperty(this, "price", price);
+        }
+        return made.price;
+    }
+
+    public BooleanProperty soldProperty() {
+        Properties made = properties();
+        if (made.sold == null) {
+            made.sold = new SimpleBooleanProperty(this, "sold", sold);
+        }
+        return made.sold;
+    }
+
+    private Properties properties() {
+        if (properties == null) {
+            properties = new Properties();
+        }
+        return properties;
+    }
+
+    /**
+     * Name: withId
+     *
+     * @param newId the id for the copy
+     * @return a copy of this car with a different id, used once the database has picked the id
+     */
+    public Car withId(int newId) {
+        Car copy = new Car(newId, getYear(), getMake(), getModel(), getColor(), getEngine(), getTransmissionType(), getPrice());
+        copy.setSold(isSold());
+        copy.setVersion(version);
+        copy.setArchived(archived);
+        return copy;
+    }
+
+    //To show the cars in the file
+    @Override
+    public String toString(){
+        return "ID: " + id + ", Year: " + getYear() + ", Make: " + getMake() + ", Model: " + getModel() + ", Color: " + getColor() + ", Engine: " + getEngine() + ", Transmission: " + getTransmissionType() + ", Price: $" + String.format("%.2f",getPrice());
+    }
+}
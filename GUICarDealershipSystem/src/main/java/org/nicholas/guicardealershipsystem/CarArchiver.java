@@ -0,0 +1,100 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarArchiver.java
+ * This class moves the cars that were sold a long time ago out of the Cars table into
+ * CarsArchive, so loading and filtering the stock does not get slower as sales add up.
+ * The cars are moved a batch at a time on the database writer thread, each batch in its
+ * own transaction, so the edits the user makes in the meantime only wait for one batch.
+ * Start the program with -Dcardealership.archive.days=N to change how old a sale has to
+ * be (365 days by default), or with a negative number to keep every car in Cars.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class CarArchiver {
+    public static final long DEFAULT_AGE_DAYS = Long.getLong("cardealership.archive.days", 365);
+    public static final int DEFAULT_BATCH = 1_000;
+
+    private static final Logger LOG = Logger.getLogger(CarArchiver.class.getName());
+
+    private final CarService carService;
+    private final long ageMillis;
+    private final int batchSize;
+    private boolean running;
+
+    public CarArchiver(CarService carService) {
+        this(carService, DEFAULT_AGE_DAYS, DEFAULT_BATCH);
+    }
+
+    /**
+     * Name: CarArchiver
+     *
+     * @param carService the service whose writer thread moves the cars
+     * @param ageDays    how many days ago a car has to be sold to be moved, negative to never move any
+     * @param batchSize  how many cars are moved in one transaction
+     */
+    public CarArchiver(CarService carService, long ageDays, int batchSize) {
+        this.carService = carService;
+        this.ageMillis = ageDays < 0 ? -1 : TimeUnit.DAYS.toMillis(ageDays);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Name: start
+     *
+     * Starts moving the old sales unless it is already running or turned off.
+     *
+     * @param finished is given how many cars were moved once there are none left, on the writer thread
+     */
+    public synchronized void start(IntConsumer finished) {
+        if (ageMillis < 0 || running) {
+            return;
+        }
+        running = true;
+        long soldBefore = System.currentTimeMillis() - ageMillis;
+        carService.writeLater(() -> archiveBatch(soldBefore, 0, finished));
+    }
+
+    // Moves one batch, then puts the next batch behind the writes that were started in the meantime
+    private void archiveBatch(long soldBefore, int movedSoFar, IntConsumer finished) {
+        long start = Metrics.start();
+        int moved;
+        try {
+            moved = carService.getRepository().archiveSold(soldBefore, batchSize);
+            Metrics.stop(Metrics.Operation.ARCHIVE, start, moved);
+        } catch (Exception e) {
+            Metrics.failed(Metrics.Operation.ARCHIVE, start);
+            LOG.log(Level.WARNING, "Could not move the old sales to the archive", e);
+            finish(movedSoFar, finished);
+            return;
+        }
+        int total = movedSoFar + moved;
+        if (moved < batchSize) {
+            finish(total, finished);
+            return;
+        }
+        try {
+            carService.writeLater(() -> archiveBatch(soldBefore, total, finished));
+        } catch (RuntimeException e) {
+            // The program is closing, the rest is moved next time
+            finish(total, finished);
+        }
+    }
+
+    private void finish(int total, IntConsumer finished) {
+        synchronized (this) {
+            running = false;
+        }
+        if (total > 0) {
+            LOG.info(String.format("Moved %,d sold cars to the archive", total));
+        }
+        finished.accept(total);
+    }
+}
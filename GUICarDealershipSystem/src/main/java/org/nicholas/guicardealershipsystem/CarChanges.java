@@ -0,0 +1,72 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarChanges.java
+ * This class is what changed in the Cars table since a point in the CarChanges log:
+ * the cars that were added or edited as they are now, the ids of the cars that were
+ * removed, and the removed cars that were moved to the archive. If the log was already
+ * cleaned up past that point the changes are not complete and the cars have to be read
+ * again.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class CarChanges {
+    private final long lastSeq;
+    private final List<Car> changedCars;
+    private final Set<Integer> removedIds;
+    private final List<Car> archivedCars;
+    private final boolean complete;
+
+    public CarChanges(long lastSeq, List<Car> changedCars, Set<Integer> removedIds, List<Car> archivedCars, boolean complete) {
+        this.lastSeq = lastSeq;
+        this.changedCars = Collections.unmodifiableList(changedCars);
+        this.removedIds = Collections.unmodifiableSet(removedIds);
+        this.archivedCars = Collections.unmodifiableList(archivedCars);
+        this.complete = complete;
+    }
+
+    /**
+     * Name: getLastSeq
+     *
+     * @return the last entry of the log that is included, the next read starts after it
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public List<Car> getChangedCars() {
+        return changedCars;
+    }
+
+    /**
+     * Name: getRemovedIds
+     *
+     * @return the ids of the cars that were removed and are not in the archive
+     */
+    public Set<Integer> getRemovedIds() {
+        return removedIds;
+    }
+
+    /**
+     * Name: getArchivedCars
+     *
+     * @return the cars that were moved from the Cars table to the archive
+     */
+    public List<Car> getArchivedCars() {
+        return archivedCars;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean isEmpty() {
+        return changedCars.isEmpty() && removedIds.isEmpty() && archivedCars.isEmpty();
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarConflictException.java
+ * This exception is thrown when a car could not be saved or removed because someone
+ * else saved it first, from another copy of the program using the same database. It
+ * has the cars as they are in the database now so they can be shown to the user.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+public class CarConflictException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Integer> ids;
+    private final List<Car> currentCars;
+
+    /**
+     * Name: CarConflictException
+     *
+     * @param ids         the ids of the cars that were changed by someone else
+     * @param currentCars those cars as they are in the database now, a removed car is not in it
+     */
+    public CarConflictException(List<Integer> ids, List<Car> currentCars) {
+        super(ids.size() == 1 ? "Car " + ids.get(0) + " was changed by someone else"
+                : ids.size() + " cars were changed by someone else");
+        this.ids = Collections.unmodifiableList(ids);
+        this.currentCars = Collections.unmodifiableList(currentCars);
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public List<Car> getCurrentCars() {
+        return currentCars;
+    }
+}
@@ -5,40 +5,92 @@
  * CarDealershipSystemApplication.java
  * This class is what will be about the Car Dealership Management System Software which
  * will be the entry to the JavaFX application. This will load the car-view.fxml file
- * in which we will see the GUI application.
+ * in which we will see the GUI application. The window is shown first and the view is
+ * loaded right after, so the user sees something as soon as possible.
  */
 
 package org.nicholas.guicardealershipsystem;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class CarDealershipApplication extends Application {
+    private static final Logger LOG = Logger.getLogger(CarDealershipApplication.class.getName());
+    // Used by mvn -P appcds to record the classes that are loaded at startup and then close
+    private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("cardealership.exitAfterStartup");
+    private CarDealershipController controller;
+
     @Override
-    public void start(Stage primaryStage) throws IOException {
-        //Load the FXML FILE
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("car-view.fxml"));
-        Parent root = loader.load();
+    public void start(Stage primaryStage) {
+        // Start the log file and the metrics before anything else so they see everything
+        Diagnostics diagnostics = Diagnostics.install();
 
-        // icon image
-        Image icon = new Image("C:/Users/ndhan/Desktop/GUICarDealershipSystem/src/main/java/org/nicholas/guicardealershipsystem/caricon.png");
+        // icon image, loaded in the background from the jar
+        Image icon = new Image(getClass().getResource("caricon.png").toExternalForm(), true);
         // Setting the application icon
         primaryStage.getIcons().add(icon);
 
-        Scene scene = new Scene(root);
+        // The window is shown right away with a spinner, the real view is put in on the next pulse
+        Scene scene = new Scene(new StackPane(new ProgressIndicator()), 736, 920);
         primaryStage.setScene(scene);
 
         primaryStage.setTitle("Car Dealership Management System");
         primaryStage.show();
+        Platform.runLater(() -> showView(scene, diagnostics));
+    }
+
+    private void showView(Scene scene, Diagnostics diagnostics) {
+        //Load the FXML FILE
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("car-view.fxml"));
+        Parent root;
+        try {
+            root = loader.load();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Could not load car-view.fxml", e);
+            Platform.exit();
+            return;
+        }
+        controller = loader.getController();
+        scene.setRoot(root);
+        // F12 shows or hides the diagnostics overlay
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.F12), controller::toggleDiagnostics);
+        LOG.info(String.format("The window was ready %,d ms after the JVM started", ManagementFactory.getRuntimeMXBean().getUptime()));
+        diagnostics.startFxStallWatcher();
+        // The SQLite driver and the database used last time are opened in the background
+        controller.openLastDatabase();
+        if (EXIT_AFTER_STARTUP) {
+            PauseTransition wait = new PauseTransition(Duration.seconds(5));
+            wait.setOnFinished(event -> Platform.exit());
+            wait.play();
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Close the database connections that are kept open
+        if (controller != null) {
+            controller.shutdown();
+        }
+        Diagnostics.install().shutdown();
     }
 
     public static void main(String[] args) {
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,491 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarDealershipCli.java
+ * This class runs batch files of changes against a database without the GUI, so jobs
+ * like the nightly reprice and cleanup can run on a server that has no display. Each
+ * line of a batch file is one operation:
+ *
+ *     add,2020,Toyota,Camry,Red,V6,Automatic,25999.99[,sold]
+ *     update,15,2020,Toyota,Camry,Red,V6,Automatic,24999.99[,sold]
+ *     sell,15
+ *     delete,15
+ *     delete-where,make=Ford,maxYear=2005
+ *     reprice,-5%,make=Toyota,minYear=2015
+ *     query,make=Toyota,maxPrice=20000
+ *
+ * The filters can use year, make, model, color, minYear, maxYear, minPrice, maxPrice and
+ * prefix=true. Blank lines and lines starting with # are skipped. Query results are
+ * printed to standard output as CSV.
+ *
+ * The lines are read in chunks and parsed by worker threads while one writer thread
+ * runs the chunks that are ready, in the order of the file, each in its own transaction.
+ * SQLite only lets one connection write at a time so more writers would only wait on
+ * each other.
+ *
+ *     java org.nicholas.guicardealershipsystem.CarDealershipCli database.db [--threads N] [--batch N] [--stop-on-error] [file...]
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CarDealershipCli {
+    // The end of the input, put in the queue after the last chunk
+    private static final Future<Chunk> END = CompletableFuture.completedFuture(null);
+
+    private final CarRepository repository;
+    private final int threads;
+    private final int batchSize;
+    private final boolean stopOnError;
+    private final Writer output;
+    private boolean headerWritten;
+    private long operations;
+    private long changedRows;
+    private long badLines;
+    private long batches;
+
+    // A group of lines from one input, parsed into operations by a worker thread
+    private static class Chunk {
+        final String source;
+        final long firstLine;
+        final List<String> lines;
+        final List<CarOperation> operations = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        Chunk(String source, long firstLine, List<String> lines) {
+            this.source = source;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    public CarDealershipCli(CarRepository repository, int threads, int batchSize, boolean stopOnError, Writer output) {
+        this.repository = repository;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.stopOnError = stopOnError;
+        this.output = output;
+    }
+
+    /**
+     * Name: run
+     *
+     * Reads, parses and runs every input in order.
+     *
+     * @param inputs the batch files, "-" is standard input
+     * @return true if every line was run, false if there were bad lines or a batch failed
+     */
+    public boolean run(List<String> inputs) throws IOException, InterruptedException {
+        // A few chunks per worker are parsed ahead of the writer, more would only use memory
+        BlockingQueue<Future<Chunk>> parsed = new ArrayBlockingQueue<>(threads * 2);
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cli-parser-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread reader = new Thread(() -> read(inputs, parsers, parsed), "cli-reader");
+        reader.setDaemon(true);
+        reader.start();
+        boolean ok = true;
+        try {
+            for (Future<Chunk> next = parsed.take(); next != END; next = parsed.take()) {
+                Chunk chunk;
+                try {
+                    chunk = next.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Could not read the batch file", e.getCause());
+                }
+                if (!write(chunk)) {
+                    ok = false;
+                    break;
+                }
+            }
+        } finally {
+            // Stops the reader if the writer stopped early
+            reader.interrupt();
+            parsers.shutdownNow();
+            output.flush();
+        }
+        return ok && badLines == 0;
+    }
+
+    // Runs on the reader thread, hands out chunks of lines to the parsers in order
+    private void read(List<String> inputs, ExecutorService parsers, BlockingQueue<Future<Chunk>> parsed) {
+        try {
+            try {
+                for (String input : inputs) {
+                    boolean stdin = input.equals("-");
+                    try (BufferedReader lines = stdin
+                            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                            : Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8)) {
+                        String source = stdin ? "stdin" : input;
+                        long lineNumber = 0;
+                        List<String> chunk = new ArrayList<>(batchSize);
+                        String line;
+                        while ((line = lines.readLine()) != null) {
+                            lineNumber++;
+                            chunk.add(line);
+                            if (chunk.size() == batchSize) {
+                                parsed.put(parse(parsers, source, lineNumber - chunk.size() + 1, chunk));
+                                chunk = new ArrayList<>(batchSize);
+                            }
+                        }
+                        if (!chunk.isEmpty()) {
+                            parsed.put(parse(parsers, source, lineNumber - chunk.size() + 1, chunk));
+                        }
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                parsed.put(CompletableFuture.failedFuture(e));
+            }
+            parsed.put(END);
+        } catch (InterruptedException e) {
+            // The writer stopped, nothing more is needed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Future<Chunk> parse(ExecutorService parsers, String source, long firstLine, List<String> lines) {
+        Chunk chunk = new Chunk(source, firstLine, lines);
+        return parsers.submit(() -> {
+            for (int i = 0; i < chunk.lines.size(); i++) {
+                String line = chunk.lines.get(i).trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    chunk.operations.add(parseOperation(splitFields(line)));
+                } catch (IllegalArgumentException e) {
+                    chunk.errors.add(chunk.source + ":" + (chunk.firstLine + i) + ": " + e.getMessage());
+                }
+            }
+            return chunk;
+        });
+    }
+
+    // Runs on the writer thread, one transaction for each chunk
+    private boolean write(Chunk chunk) throws IOException {
+        for (String error : chunk.errors) {
+            System.err.println(error);
+        }
+        badLines += chunk.errors.size();
+        if (!chunk.errors.isEmpty() && stopOnError) {
+            return false;
+        }
+        if (chunk.operations.isEmpty()) {
+            return true;
+        }
+        long start = Metrics.start();
+        try {
+            changedRows += repository.applyAll(chunk.operations, this::writeCar);
+            Metrics.stop(Metrics.Operation.WRITE, start, chunk.operations.size());
+        } catch (SQLException | UncheckedIOException e) {
+            Metrics.failed(Metrics.Operation.WRITE, start);
+            long lastLine = chunk.firstLine + chunk.lines.size() - 1;
+            System.err.println(chunk.source + ":" + chunk.firstLine + "-" + lastLine + ": the batch was rolled back: " + e.getMessage());
+            return false;
+        }
+        operations += chunk.operations.size();
+        batches++;
+        return true;
+    }
+
+    private void writeCar(Car car) {
+        try {
+            if (!headerWritten) {
+                output.write("id,year,make,model,color,engine,transmission,price,sold\n");
+                headerWritten = true;
+            }
+            output.write(car.getId() + "," + car.getYear() + "," + csv(car.getMake()) + "," + csv(car.getModel()) + ","
+                    + csv(car.getColor()) + "," + csv(car.getEngine()) + "," + csv(car.getTransmissionType()) + ","
+                    + car.getPrice() + "," + (car.isSold() ? 1 : 0) + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Name: parseOperation
+     *
+     * @param fields the fields of one line of a batch file
+     * @return the operation the line stands for
+     * @throws IllegalArgumentException if the line is not a valid operation
+     */
+    static CarOperation parseOperation(List<String> fields) {
+        String command = fields.get(0).toLowerCase();
+        switch (command) {
+            case "add":
+                checkFieldCount(fields, 8, 9);
+                return CarOperation.add(parseCar(0, fields, 1));
+            case "update":
+                checkFieldCount(fields, 9, 10);
+                return CarOperation.update(parseCar(parseId(fields.get(1)), fields, 2));
+            case "sell":
+                checkFieldCount(fields, 2, 2);
+                return CarOperation.sell(parseId(fields.get(1)));
+            case "delete":
+                checkFieldCount(fields, 2, 2);
+                return CarOperation.delete(parseId(fields.get(1)));
+            case "delete-where":
+                return CarOperation.deleteMatching(parseFilter(fields, 1));
+            case "reprice":
+                checkFieldCount(fields, 2, Integer.MAX_VALUE);
+                return CarOperation.reprice(parseFilter(fields, 2), parseFactor(fields.get(1)));
+            case "query":
+                return CarOperation.query(parseFilter(fields, 1));
+            default:
+                throw new IllegalArgumentException("Unknown operation \"" + fields.get(0) + "\"");
+        }
+    }
+
+    private static void checkFieldCount(List<String> fields, int min, int max) {
+        if (fields.size() < min || fields.size() > max) {
+            String needed = min == max ? "" + min : max == Integer.MAX_VALUE ? min + " or more" : min + " or " + max;
+            throw new IllegalArgumentException(fields.get(0) + " needs " + needed + " fields but the line has " + fields.size());
+        }
+    }
+
+    private static Car parseCar(int id, List<String> fields, int first) {
+        Car car;
+        try {
+            car = Car.fromFields(id, fields.get(first), fields.get(first + 1), fields.get(first + 2), fields.get(first + 3),
+                    fields.get(first + 4), fields.get(first + 5), fields.get(first + 6));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The year and price must be numbers");
+        }
+        if (fields.size() > first + 7) {
+            car.setSold(parseSold(fields.get(first + 7)));
+        }
+        return car;
+    }
+
+    private static boolean parseSold(String value) {
+        switch (value.trim().toLowerCase()) {
+            case "sold":
+            case "true":
+            case "1":
+                return true;
+            case "":
+            case "false":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Sold must be sold, true, 1, false or 0 but was \"" + value + "\"");
+        }
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The id must be a number but was \"" + value + "\"");
+        }
+    }
+
+    // -5% or +3% change the prices by a percent, x0.9 multiplies them
+    private static double parseFactor(String value) {
+        String text = value.trim();
+        try {
+            if (text.endsWith("%")) {
+                return 1 + Double.parseDouble(text.substring(0, text.length() - 1)) / 100;
+            }
+            if (text.startsWith("x")) {
+                return Double.parseDouble(text.substring(1));
+            }
+        } catch (NumberFormatException e) {
+            // The message below says what is wrong
+        }
+        throw new IllegalArgumentException("The price change must look like -5%, +3% or x0.9 but was \"" + value + "\"");
+    }
+
+    private static CarFilter parseFilter(List<String> fields, int first) {
+        String year = "";
+        String make = "";
+        String model = "";
+        String color = "";
+        boolean prefix = false;
+        int minYear = Integer.MIN_VALUE;
+        int maxYear = Integer.MAX_VALUE;
+        double minPrice = Double.NEGATIVE_INFINITY;
+        double maxPrice = Double.POSITIVE_INFINITY;
+        for (int i = first; i < fields.size(); i++) {
+            String field = fields.get(i);
+            int equals = field.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Filters must look like name=value but was \"" + field + "\"");
+            }
+            String name = field.substring(0, equals).trim();
+            String value = field.substring(equals + 1).trim();
+            try {
+                switch (name) {
+                    case "year":
+                        year = value;
+                        break;
+                    case "make":
+                        make = value;
+                        break;
+                    case "model":
+                        model = value;
+                        break;
+                    case "color":
+                        color = value;
+                        break;
+                    case "prefix":
+                        prefix = Boolean.parseBoolean(value);
+                        break;
+                    case "minYear":
+                        minYear = Integer.parseInt(value);
+                        break;
+                    case "maxYear":
+                        maxYear = Integer.parseInt(value);
+                        break;
+                    case "minPrice":
+                        minPrice = Double.parseDouble(value);
+                        break;
+                    case "maxPrice":
+                        maxPrice = Double.parseDouble(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown filter \"" + name + "\"");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be a number but was \"" + value + "\"");
+            }
+        }
+        return new CarFilter(year, make, model, color, prefix)
+                .withYearRange(minYear, maxYear)
+                .withPriceRange(minPrice, maxPrice);
+    }
+
+    /**
+     * Name: splitFields
+     *
+     * Splits a line at the commas. A field in double quotes can have commas in it, and
+     * two double quotes in a quoted field are one double quote.
+     */
+    static List<String> splitFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("A double quote was not closed");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ran %,d operations in %,d batches, %,d rows changed, %,d bad lines", operations, batches, changedRows, badLines);
+    }
+
+    /**
+     * Name: main
+     *
+     * @param args the database file, the options and the batch files, standard input is read when there are no files
+     */
+    public static void main(String[] args) throws Exception {
+        String database = null;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int batchSize = 5_000;
+        boolean stopOnError = false;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--batch":
+                        batchSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--stop-on-error":
+                        stopOnError = true;
+                        break;
+                    default:
+                        if (database == null) {
+                            database = args[i];
+                        } else {
+                            inputs.add(args[i]);
+                        }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            database = null;
+        }
+        if (database == null || threads < 1 || batchSize < 1) {
+            System.err.println("Usage: CarDealershipCli <database.db> [--threads N] [--batch N] [--stop-on-error] [file...|-]");
+            System.exit(1);
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+
+        long start = System.nanoTime();
+        boolean ok;
+        CarDealershipCli cli;
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + database, 1, ConnectionPool.defaultPragmas());
+             Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            CarRepository repository = new CarRepository(pool);
+            repository.migrate();
+            cli = new CarDealershipCli(repository, threads, batchSize, stopOnError, output);
+            ok = cli.run(inputs);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%s in %.2f s (%,.0f operations/s)%n", cli, seconds, cli.operations / Math.max(seconds, 1e-9));
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -10,25 +10,95 @@
 
 package org.nicholas.guicardealershipsystem;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
+import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.io.*;
-import java.sql.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
 
 public class CarDealershipController {
+    private static final Logger LOG = Logger.getLogger(CarDealershipController.class.getName());
+    // Databases with more cars than this are shown a page at a time instead of read into memory
+    private static final int PAGED_LOAD_THRESHOLD = Integer.getInteger("cardealership.paged.threshold", 100_000);
+    // How long to wait after the last key press before filtering
+    private static final Duration LIVE_FILTER_DELAY = Duration.millis(150);
+    // The most matching cars shown by the live filter when the cars are shown a page at a time
+    private static final int LIVE_FILTER_LIMIT = 1_000;
+    // The most cars shown by the search box
+    private static final int SEARCH_LIMIT = 1_000;
+    // Where the database that was used last is remembered for the next start
+    private static final Preferences PREFERENCES = Preferences.userNodeForPackage(CarDealershipController.class);
+    private static final String LAST_DATABASE = "lastDatabase";
+    // How often the CarChanges log is read for cars that other copies of the program changed
+    private static final Duration CHANGES_POLL = Duration.millis(Long.getLong("cardealership.changes.pollMillis", 2000));
+    // The most log entries read by one poll, the rest are read by the next one
+    private static final int CHANGES_LIMIT = 5_000;
+    private static final boolean OPEN_LAST_DATABASE = !"false".equalsIgnoreCase(System.getProperty("cardealership.openLastDatabase"));
+
     @FXML
     private TableView<Car> tableView;
     @FXML
+    private TableColumn<Car, Number> idColumn;
+    @FXML
+    private TableColumn<Car, Number> yearColumn;
+    @FXML
+    private TableColumn<Car, String> makeColumn;
+    @FXML
+    private TableColumn<Car, String> modelColumn;
+    @FXML
+    private TableColumn<Car, String> colorColumn;
+    @FXML
+    private TableColumn<Car, String> engineColumn;
+    @FXML
+    private TableColumn<Car, String> transmissionColumn;
+    @FXML
+    private TableColumn<Car, Number> priceColumn;
+    @FXML
+    private TableColumn<Car, Boolean> soldColumn;
+    @FXML
     private Button addCarButton;
     @FXML
+    private Button undoButton;
+    @FXML
+    private Button redoButton;
+    @FXML
+    private TextField searchField;
+    @FXML
     private TextField yearFilterField;
     @FXML
     private TextField makeFilterField;
@@ -36,26 +106,564 @@ public class CarDealershipController {
     private TextField modelFilterField;
     @FXML
     private TextField colorFilterField;
+    @FXML
+    private TextField minYearField;
+    @FXML
+    private TextField maxYearField;
+    @FXML
+    private TextField minPriceField;
+    @FXML
+    private TextField maxPriceField;
+    @FXML
+    private CheckBox liveFilterCheckBox;
+    @FXML
+    private CheckBox includeArchivedCheckBox;
+    @FXML
+    private CheckBox writeBehindCheckBox;
+    @FXML
+    private ComboBox<InventoryStats.Dimension> statsGroupChoice;
+    @FXML
+    private Label statsTotalLabel;
+    @FXML
+    private TableView<InventoryStats.Summary> statsTable;
+    @FXML
+    private TableColumn<InventoryStats.Summary, String> statsGroupColumn;
+    @FXML
+    private TableColumn<InventoryStats.Summary, Number> statsCountColumn;
+    @FXML
+    private TableColumn<InventoryStats.Summary, Number> statsAverageColumn;
+    @FXML
+    private TableColumn<InventoryStats.Summary, Number> statsValueColumn;
+    @FXML
+    private TableColumn<InventoryStats.Summary, Number> statsSoldColumn;
+    @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Button cancelButton;
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private Label diagnosticsLabel;
+    // Refreshes the diagnostics overlay every second while it is shown
+    private final Timeline diagnosticsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), event -> refreshDiagnostics()));
+    private final Timeline changesPoll = new Timeline(new KeyFrame(CHANGES_POLL, event -> pollChanges()));
+    private Task<CarChanges> changesTask;
     private ObservableList<Car> allCars;
+    // The live filter view of allCars that the tableView shows
+    private FilteredList<Car> filteredCars;
+    // The filtered cars sorted by the column the user clicked, what the tableView shows when there is no search
+    private SortedList<Car> sortedCars;
+    private PagedCarList pagedCars;
+    // The cars found by the search box while the tableView is showing them
+    private ObservableList<Car> searchResults;
+    private final PauseTransition liveFilterDelay = new PauseTransition(LIVE_FILTER_DELAY);
+    private Task<?> liveFilterTask;
+    // The databases that were opened, with their connections and the cars loaded from them
+    private final DataSourceRegistry dataSources = new DataSourceRegistry();
+    private DataSourceRegistry.DataSource currentSource;
+    private Task<List<Car>> loadTask;
+    // The task that the progress bar and cancel button are showing
+    private Task<?> progressTask;
+
 
+    /**
+     * Name: getCarService
+     *
+     * This is where the program will connect to the database that the user
+     * uploaded. The connections stay open in the pool and all the database work
+     * is run in the background by the car service. If no database was chosen yet
+     * the user is told to choose one, instead of making a new database somewhere.
+     *
+     * @return the car service for the database, or null if no database was chosen
+     */
+    private CarService getCarService() {
+        if (currentSource == null) {
+            showError("No Database Selected", "Please use Upload File to choose a database first.");
+            return null;
+        }
+        return currentSource.getCarService();
+    }
 
     /**
-     * Name: getConnection
+     * Name: selectDatabase
      *
-     * This is where the program will connect to the database from
-     * the url that is entered which is the path to your database.
+     * Makes the database the one that the user is working with. A database that was
+     * used recently is still open, so its connections are ready.
      *
-     * @return DriverManager.getConnection(url)
-     * @throws SQLException
+     * @param path the database file
+     * @return the open database
      */
-    private Connection getConnection() throws SQLException {
-        String url = "jdbc:sqlite:C:/sqlite/db/CarDealership.db";
-        return DriverManager.getConnection(url);
+    private DataSourceRegistry.DataSource selectDatabase(Path path) {
+        currentSource = dataSources.open(path);
+        updateUndoButtons();
+        if (!currentSource.isMigrated()) {
+            currentSource.setMigrated(true);
+            watchWriteBehind(currentSource);
+            // Add the tables and indexes the program needs, this runs before any other write
+            Task<Void> task = currentSource.getCarService().migrate();
+            task.setOnFailed(event -> {
+                LOG.log(Level.SEVERE, "Could not update the database", task.getException());
+                showError("Failed to Update Database", "The indexes used by the filters could not be created.");
+            });
+            archiveOldSales(currentSource);
+        }
+        return currentSource;
+    }
+
+    /**
+     * Name: archiveOldSales
+     *
+     * Moves the old sales to the archive in the background after the database was updated.
+     * The change log tells the table which cars left, unless so many were moved that
+     * reading every car again is quicker.
+     */
+    private void archiveOldSales(DataSourceRegistry.DataSource source) {
+        source.getArchiver().start(moved -> Platform.runLater(() -> {
+            if (moved == 0 || source != currentSource) {
+                return;
+            }
+            if (moved > CHANGES_LIMIT && source.getCars() != null) {
+                loadCarsFile();
+            }
+            showStatus(String.format("Moved %,d sold cars to the archive", moved));
+        }));
+    }
+
+    /**
+     * Name: watchWriteBehind
+     *
+     * Updates the rows of the cars when their edits are saved in the background, and
+     * tells the user when they could not be saved.
+     */
+    private void watchWriteBehind(DataSourceRegistry.DataSource source) {
+        source.getWriteBehind().setListener(new WriteBehindQueue.Listener() {
+            @Override
+            public void saved(List<Car> cars) {
+                Platform.runLater(() -> {
+                    if (source == currentSource) {
+                        // The copies that were written have the new versions, the cars in the table need them for the next edit
+                        Map<Integer, Car> loaded = loadedCarsById(idsOf(cars));
+                        for (Car car : cars) {
+                            Car shown = loaded.get(car.getId());
+                            if (shown != null && shown.getVersion() < car.getVersion()) {
+                                shown.setVersion(car.getVersion());
+                            }
+                        }
+                        tableView.refresh();
+                        showStatus(String.format("Saved %,d edited cars", cars.size()));
+                    }
+                });
+            }
+
+            @Override
+            public void failed(List<Car> cars, Exception exception) {
+                if (exception instanceof CarConflictException) {
+                    Platform.runLater(() -> {
+                        if (source == currentSource) {
+                            showConflict((CarConflictException) exception);
+                        }
+                    });
+                    return;
+                }
+                LOG.log(Level.SEVERE, "Could not save the edited cars", exception);
+                Platform.runLater(() -> {
+                    if (source == currentSource) {
+                        tableView.refresh();
+                    }
+                    showError("Failed to Update Car", String.format("%,d edited cars could not be saved to %s. They are shown in red, edit them again to retry.",
+                            cars.size(), source.getPath().getFileName()));
+                });
+            }
+        });
+    }
+
+    /**
+     * Name: openDatabase
+     *
+     * Switches to the database the user picked. If its cars were loaded before
+     * they are shown right away instead of being read again.
+     *
+     * @param path the database file
+     */
+    private void openDatabase(Path path) {
+        if (loadTask != null && loadTask.isRunning()) {
+            loadTask.cancel();
+        }
+        DataSourceRegistry.DataSource source = selectDatabase(path);
+        PREFERENCES.put(LAST_DATABASE, source.getPath().toString());
+        if (source.getCars() != null && source.isArchivedIncluded() == includeArchivedCheckBox.isSelected()) {
+            showCars(source.getCars());
+            statusLabel.setText("Showing " + path.getFileName());
+        } else {
+            loadCarsFile();
+        }
+    }
+
+    /**
+     * Name: openLastDatabase
+     *
+     * Gets the program ready while the user looks at the window. The SQLite driver and
+     * its native library are loaded and the database used last time is opened on a
+     * background thread, then its cars are shown like after Upload File. If the user
+     * picks a database before that is done, the one they picked is kept.
+     */
+    public void openLastDatabase() {
+        String saved = OPEN_LAST_DATABASE ? PREFERENCES.get(LAST_DATABASE, null) : null;
+        Path last = saved == null ? null : Path.of(saved);
+        boolean exists = last != null && Files.isRegularFile(last);
+        Task<Void> warmUp = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                // The first connection loads the driver, which is the slow part of the first upload
+                try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+                    connection.createStatement().close();
+                }
+                if (exists) {
+                    try (PooledConnection connection = dataSources.open(last).getConnectionPool().borrow()) {
+                        connection.prepare("SELECT 1 FROM Cars LIMIT 1").executeQuery().close();
+                    }
+                }
+                return null;
+            }
+        };
+        warmUp.setOnSucceeded(event -> {
+            if (exists && currentSource == null) {
+                openDatabase(last);
+                addCarButton.setDisable(false);
+            }
+        });
+        warmUp.setOnFailed(event -> LOG.log(Level.WARNING, "Could not open " + last + " at startup", warmUp.getException()));
+        Thread thread = new Thread(warmUp, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Name: showCars
+     *
+     * Puts the cars in the tableView, they are either all the cars or a paged list.
+     * All the cars are shown through a filtered and sorted view so the live filter
+     * and sorting by a column do not change the list itself.
+     */
+    private void showCars(ObservableList<Car> cars) {
+        searchResults = null;
+        if (cars instanceof PagedCarList) {
+            allCars = null;
+            filteredCars = null;
+            sortedCars = null;
+            pagedCars = (PagedCarList) cars;
+            tableView.setItems(cars);
+        } else {
+            pagedCars = null;
+            allCars = cars;
+            filteredCars = new FilteredList<>(cars);
+            sortedCars = new SortedList<>(filteredCars);
+            sortedCars.comparatorProperty().bind(tableView.comparatorProperty());
+            tableView.setItems(sortedCars);
+        }
+        applyLiveFilter();
+        refreshStats();
+    }
+
+    /**
+     * Name: refreshStats
+     *
+     * Shows the statistics of the cars in the statistics panel. They are kept up to date
+     * as the cars change, so this only copies the totals of each group.
+     */
+    private void refreshStats() {
+        InventoryStats stats = currentSource == null ? null : currentSource.getStats();
+        if (allCars == null || stats == null || !stats.isBuilt()) {
+            statsTable.getItems().clear();
+            statsTotalLabel.setText(pagedCars != null ? "Statistics are shown when every car is loaded into memory" : "");
+            return;
+        }
+        statsTotalLabel.setText(stats.getTotal().toString());
+        statsTable.getItems().setAll(stats.getSummaries(statsGroupChoice.getValue()));
     }
 
     public void initialize() {
         //The user cannot add a car without uploading a valid Database file
         addCarButton.setDisable(true);
+        cancelButton.setDisable(true);
+        updateUndoButtons();
+        Diagnostics.install().setConnectionPools(dataSources::describeConnectionPools);
+        diagnosticsRefresh.setCycleCount(Animation.INDEFINITE);
+        changesPoll.setCycleCount(Animation.INDEFINITE);
+        changesPoll.play();
+        // The columns use the properties of the car directly instead of looking up the getters
+        // by name for every cell, and the cells update themselves when a car is edited. A row of
+        // the paged list is empty (null) until its page has been read.
+        idColumn.setCellValueFactory(carValue(Car::idProperty));
+        yearColumn.setCellValueFactory(carValue(Car::yearProperty));
+        makeColumn.setCellValueFactory(carValue(Car::makeProperty));
+        modelColumn.setCellValueFactory(carValue(Car::modelProperty));
+        colorColumn.setCellValueFactory(carValue(Car::colorProperty));
+        engineColumn.setCellValueFactory(carValue(Car::engineProperty));
+        transmissionColumn.setCellValueFactory(carValue(Car::transmissionTypeProperty));
+        priceColumn.setCellValueFactory(carValue(Car::priceProperty));
+        soldColumn.setCellValueFactory(carValue(Car::soldProperty));
+        // The paged list only has the cars that are in memory so it can not be sorted
+        tableView.setSortPolicy(table -> !(table.getItems() instanceof PagedCarList) && TableView.DEFAULT_SORT_POLICY.call(table));
+        // Cars with edits waiting to be saved are yellow, and red if the save failed
+        tableView.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateItem(Car car, boolean empty) {
+                super.updateItem(car, empty);
+                WriteBehindQueue.State state = empty || car == null || currentSource == null ? null : currentSource.getWriteBehind().getState(car.getId());
+                if (state == WriteBehindQueue.State.PENDING) {
+                    setStyle("-fx-background-color: #fff3c4;");
+                } else if (state == WriteBehindQueue.State.FAILED) {
+                    setStyle("-fx-background-color: #f6c6c6;");
+                } else {
+                    setStyle("");
+                }
+            }
+        });
+        // Filter and search while the user types, once they stop typing for a moment
+        liveFilterDelay.setOnFinished(event -> applyLiveFilter());
+        for (TextField field : List.of(searchField, yearFilterField, makeFilterField, modelFilterField, colorFilterField, minYearField, maxYearField, minPriceField, maxPriceField)) {
+            field.textProperty().addListener((observable, oldValue, newValue) -> liveFilterDelay.playFromStart());
+        }
+        // Make sure that the years and prices of the ranges are numbers
+        for (TextField field : List.of(minYearField, maxYearField)) {
+            field.textProperty().addListener((observable, oldValue, newValue) -> {
+                if (!newValue.matches("\\d{0,9}")) {
+                    field.setText(oldValue);
+                }
+            });
+        }
+        for (TextField field : List.of(minPriceField, maxPriceField)) {
+            field.textProperty().addListener((observable, oldValue, newValue) -> {
+                if (!newValue.matches("\\d*(\\.\\d*)?")) {
+                    field.setText(oldValue);
+                }
+            });
+        }
+        liveFilterCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> applyLiveFilter());
+        // The archived cars are only read when they are asked for, so the cars are read again
+        includeArchivedCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            if (currentSource != null) {
+                loadCarsFile();
+            }
+        });
+
+        // The statistics panel
+        statsGroupChoice.getItems().setAll(InventoryStats.Dimension.values());
+        statsGroupChoice.setValue(InventoryStats.Dimension.MAKE);
+        statsGroupChoice.valueProperty().addListener((observable, oldValue, newValue) -> refreshStats());
+        statsGroupColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getGroup()));
+        statsCountColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getCount()));
+        statsAverageColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getAveragePrice()));
+        statsValueColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getStockValue()));
+        statsSoldColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getSoldRatio() * 100));
+        formatColumn(statsCountColumn, "%,d");
+        formatColumn(statsAverageColumn, "$%,.2f");
+        formatColumn(statsValueColumn, "$%,.2f");
+        formatColumn(statsSoldColumn, "%.1f%%");
+    }
+
+    /**
+     * Name: formatColumn
+     *
+     * Shows the numbers in the column with the format, they are still sorted as numbers.
+     */
+    private static void formatColumn(TableColumn<InventoryStats.Summary, Number> column, String format) {
+        column.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format(format, value));
+            }
+        });
+    }
+
+    /**
+     * Name: applyLiveFilter
+     *
+     * Shows only the cars that start with what is typed in the filter fields, ignoring
+     * case. When all the cars are in memory the search index finds them, otherwise the
+     * database does. The work is done in the background and a newer filter replaces
+     * one that has not finished yet. While something is typed in the search box the
+     * search results are shown instead.
+     */
+    private void applyLiveFilter() {
+        if (liveFilterTask != null) {
+            liveFilterTask.cancel();
+            liveFilterTask = null;
+        }
+        if (!searchField.getText().isBlank()) {
+            search(searchField.getText());
+            return;
+        }
+        if (searchResults != null) {
+            searchResults = null;
+            tableView.setItems(pagedCars != null ? pagedCars : sortedCars);
+        }
+        CarFilter filter = liveFilterCheckBox.isSelected() ? buildFilter(true) : new CarFilter("", "", "", "");
+        long start = System.nanoTime();
+        if (filteredCars != null) {
+            if (filter.isEmpty()) {
+                filteredCars.setPredicate(null);
+                return;
+            }
+            FilteredList<Car> target = filteredCars;
+            InventoryIndex index = currentSource.getIndex();
+            if (!index.isBuilt()) {
+                target.setPredicate(filter::matches);
+                return;
+            }
+            Task<BitSet> task = getCarService().read(monitor -> index.findIds(filter));
+            liveFilterTask = task;
+            task.setOnSucceeded(event -> {
+                if (liveFilterTask != task || target != filteredCars) {
+                    return;
+                }
+                liveFilterTask = null;
+                BitSet ids = task.getValue();
+                target.setPredicate(car -> ids.get(car.getId()));
+                showStatus(String.format("%,d matching cars (%d ms)", target.size(), (System.nanoTime() - start) / 1_000_000));
+            });
+            task.setOnFailed(event -> LOG.log(Level.WARNING, "Live filter failed", task.getException()));
+        } else if (pagedCars != null) {
+            if (filter.isEmpty()) {
+                tableView.setItems(pagedCars);
+                return;
+            }
+            PagedCarList source = pagedCars;
+            Task<List<Car>> task = getCarService().findMatching(filter, LIVE_FILTER_LIMIT, includeArchivedCheckBox.isSelected());
+            liveFilterTask = task;
+            task.setOnSucceeded(event -> {
+                if (liveFilterTask != task || source != pagedCars) {
+                    return;
+                }
+                liveFilterTask = null;
+                List<Car> matches = task.getValue();
+                tableView.setItems(FXCollections.observableArrayList(matches));
+                showStatus(String.format(matches.size() == LIVE_FILTER_LIMIT ? "Showing the first %,d matching cars (%d ms)" : "%,d matching cars (%d ms)",
+                        matches.size(), (System.nanoTime() - start) / 1_000_000));
+            });
+            task.setOnFailed(event -> LOG.log(Level.WARNING, "Live filter failed", task.getException()));
+        }
+    }
+
+    /**
+     * Name: search
+     *
+     * Shows the cars that have the words typed in the search box in their make, model,
+     * color, engine or transmission, the best matches first. When every car is in memory
+     * the search index finds them and allows typos, otherwise the full text index in the
+     * database finds the cars in stock that have words starting with the typed ones, and
+     * they are added to the table as they are read.
+     */
+    private void search(String text) {
+        if (currentSource == null || (allCars == null && pagedCars == null)) {
+            return;
+        }
+        ObservableList<Car> results = FXCollections.observableArrayList();
+        searchResults = results;
+        tableView.setItems(results);
+        long start = System.nanoTime();
+        if (allCars != null) {
+            InventoryIndex index = currentSource.getIndex();
+            Task<List<Car>> task = getCarService().read(Metrics.Operation.SEARCH, monitor -> index.search(text, SEARCH_LIMIT));
+            liveFilterTask = task;
+            task.setOnSucceeded(event -> {
+                if (liveFilterTask != task || searchResults != results) {
+                    return;
+                }
+                liveFilterTask = null;
+                results.setAll(task.getValue());
+                showSearchStatus(results.size(), start);
+            });
+            task.setOnFailed(event -> LOG.log(Level.WARNING, "Search failed", task.getException()));
+        } else {
+            // Each chunk is added on the JavaFX thread as soon as it is read, unless a newer search replaced this one
+            Task<Integer> task = getCarService().search(text, SEARCH_LIMIT, chunk -> Platform.runLater(() -> {
+                if (searchResults == results) {
+                    results.addAll(chunk);
+                }
+            }));
+            liveFilterTask = task;
+            task.setOnSucceeded(event -> {
+                if (liveFilterTask != task || searchResults != results) {
+                    return;
+                }
+                liveFilterTask = null;
+                // The last chunk was handed to the JavaFX thread before this, so it is already in the results
+                showSearchStatus(results.size(), start);
+            });
+            task.setOnFailed(event -> LOG.log(Level.WARNING, "Search failed", task.getException()));
+        }
+    }
+
+    private void showSearchStatus(int found, long start) {
+        showStatus(String.format(found == SEARCH_LIMIT ? "Showing the best %,d cars found (%d ms)" : "%,d cars found (%d ms)",
+                found, (System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Name: buildFilter
+     *
+     * @param prefix true to match cars that start with what was typed instead of the whole value
+     * @return a filter with what the user typed in the filter fields and the year and price ranges
+     */
+    private CarFilter buildFilter(boolean prefix) {
+        return new CarFilter(yearFilterField.getText(), makeFilterField.getText(), modelFilterField.getText(), colorFilterField.getText(), prefix)
+                .withYearRange(parseYear(minYearField, Integer.MIN_VALUE), parseYear(maxYearField, Integer.MAX_VALUE))
+                .withPriceRange(parsePrice(minPriceField, Double.NEGATIVE_INFINITY), parsePrice(maxPriceField, Double.POSITIVE_INFINITY));
+    }
+
+    private static int parseYear(TextField field, int noYear) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? noYear : Integer.parseInt(text);
+    }
+
+    private static double parsePrice(TextField field, double noPrice) {
+        String text = field.getText().trim();
+        // Just a "." is not a price yet
+        return text.isEmpty() || text.equals(".") ? noPrice : Double.parseDouble(text);
+    }
+
+    // The status label can not be changed while it is showing the progress of a task
+    private void showStatus(String text) {
+        if (!statusLabel.textProperty().isBound()) {
+            statusLabel.setText(text);
+        }
+    }
+
+    /**
+     * Name: shutdown
+     *
+     * Waits for the database work that was started to finish and closes the
+     * database connections when the application is closing.
+     */
+    public void shutdown() {
+        diagnosticsRefresh.stop();
+        changesPoll.stop();
+        dataSources.close();
+    }
+
+    /**
+     * Name: toggleDiagnostics
+     *
+     * Shows or hides the overlay with the metrics of the database work, the JavaFX
+     * thread stalls and the connection pools. F12 calls this.
+     */
+    public void toggleDiagnostics() {
+        boolean show = !diagnosticsLabel.isVisible();
+        diagnosticsLabel.setVisible(show);
+        diagnosticsLabel.setManaged(show);
+        if (show) {
+            refreshDiagnostics();
+            diagnosticsRefresh.play();
+        } else {
+            diagnosticsRefresh.stop();
+        }
+    }
+
+    private void refreshDiagnostics() {
+        diagnosticsLabel.setText(Diagnostics.install().overlayText());
     }
 
     /**
@@ -63,47 +671,193 @@ public class CarDealershipController {
      * <p>
      * This will load all the cars from the database file that the user chooses to upload
      * and sorts them into the category from the file. This will be then seen in
-     * the tableView.
+     * the tableView. The cars are read in the background and the progress bar shows
+     * how far along it is, the cancel button stops the load. Very big databases are
+     * shown a page at a time instead.
      */
     public void loadCarsFile() {
+        // Only one load at a time, a new one replaces the old one
+        if (loadTask != null && loadTask.isRunning()) {
+            loadTask.cancel();
+        }
         // Connecting to the database based on the file that the user has uploaded
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement("SELECT * FROM Cars");
-             ResultSet resultSet = statement.executeQuery()) {
-
-            ObservableList<Car> carList = FXCollections.observableArrayList();
-            while (resultSet.next()) {
-                //Getting the cars that are in the database and putting them based on the category
-                int id = resultSet.getInt("id");
-                int year = resultSet.getInt("year");
-                String make = resultSet.getString("make");
-                String model = resultSet.getString("model");
-                String color = resultSet.getString("color");
-                String engine = resultSet.getString("engine");
-                String transmission = resultSet.getString("transmission");
-                double price = resultSet.getDouble("price");
-                boolean sold = resultSet.getBoolean("sold");
-
-                Car car = new Car(id, year, make, model, color, engine, transmission, price);
-                car.setSold(sold);
-                carList.add(car);
-            }
-            // Populate the allCars list with the loaded cars
-            allCars = FXCollections.observableArrayList(carList);
-            // Set the TableView items to the allCars list
-            tableView.setItems(allCars);
-
-        } catch (SQLException e) {
-            e.printStackTrace();
+        CarService service = getCarService();
+        if (service == null) {
+            return;
+        }
+        DataSourceRegistry.DataSource source = currentSource;
+        Task<Boolean> sizeCheck = service.read(monitor -> {
+            // Read before the cars, so a change made during the load is read again by the poll instead of missed
+            source.setChangeSeq(service.getRepository().latestChange());
+            return service.getRepository().hasMoreThan(PAGED_LOAD_THRESHOLD);
+        });
+        sizeCheck.setOnSucceeded(event -> {
+            if (source != currentSource) {
+                return;
+            }
+            if (sizeCheck.getValue()) {
+                showPagedCars(source);
+            } else {
+                loadAllCars(source);
+            }
+        });
+        sizeCheck.setOnFailed(event -> {
+            LOG.log(Level.SEVERE, "Could not load the cars", sizeCheck.getException());
+            showError("Failed to Load Cars from Database", "Please make sure the correct file has been uploaded, and make sure path is correct.");
+        });
+    }
+
+    /**
+     * Name: showPagedCars
+     *
+     * Shows the cars a page at a time as the user scrolls, so the first cars show up
+     * right away no matter how many cars there are.
+     */
+    private void showPagedCars(DataSourceRegistry.DataSource source) {
+        PagedCarList cars = new PagedCarList(source.getCarService());
+        // The cars are not all in memory so the search index and statistics are not used
+        source.clearInventory();
+        source.setCars(cars);
+        // Only the live filter looks in the archive, the pages are the cars in stock
+        source.setArchivedIncluded(includeArchivedCheckBox.isSelected());
+        showCars(cars);
+        Task<List<Car>> task = cars.reload();
+        task.setOnFailed(event -> {
+            LOG.log(Level.SEVERE, "Could not load the cars", task.getException());
+            showError("Failed to Load Cars from Database", "Please make sure the correct file has been uploaded, and make sure path is correct.");
+        });
+    }
+
+    // Gives the property of the car in the row, or nothing for a row that is still empty
+    private static <T> Callback<TableColumn.CellDataFeatures<Car, T>, ObservableValue<T>> carValue(Function<Car, ObservableValue<T>> property) {
+        return cell -> cell.getValue() == null ? null : property.apply(cell.getValue());
+    }
+
+    /**
+     * Name: loadAllCars
+     *
+     * Reads every car into memory. The cars are shown a block at a time as they are
+     * read, and once they are all read the list they were read into is shown without
+     * copying it, with the live filter, sorting and statistics.
+     */
+    private void loadAllCars(DataSourceRegistry.DataSource source) {
+        boolean includeArchived = includeArchivedCheckBox.isSelected();
+        ObservableList<Car> loading = FXCollections.observableArrayList();
+        if (source == currentSource) {
+            showLoadingCars(loading);
+        }
+        // The search index is built in the background along with the load
+        Task<List<Car>> task = source.getCarService().loadCars(source, includeArchived,
+                block -> Platform.runLater(() -> loading.addAll(block)));
+        loadTask = task;
+        trackProgress(task);
+
+        task.setOnSucceeded(event -> {
+            finishProgress(task);
+            // Populate the allCars list with the loaded cars and keep them for when the user switches back
+            ObservableList<Car> cars = FXCollections.observableList(task.getValue());
+            source.setCars(cars);
+            source.setArchivedIncluded(includeArchived);
+            if (source == currentSource) {
+                // Set the TableView items to the allCars list
+                showCars(cars);
+            }
+        });
+        task.setOnCancelled(event -> {
+            finishProgress(task);
+            showLoadedCars(source, loading);
+        });
+        task.setOnFailed(event -> {
+            finishProgress(task);
+            showLoadedCars(source, loading);
+            LOG.log(Level.SEVERE, "Could not load the cars", task.getException());
             // Show an error message
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText("Failed to Load Cars from Database");
-            alert.setContentText("Please make sure the correct file has been uploaded, and make sure path is correct.");
-            alert.showAndWait();
+            showError("Failed to Load Cars from Database", "Please make sure the correct file has been uploaded, and make sure path is correct.");
+        });
+    }
+
+    /**
+     * Name: showLoadingCars
+     *
+     * Shows the cars that have been read so far while the rest are still being read.
+     * The filters, search and statistics wait until the load is done.
+     */
+    private void showLoadingCars(ObservableList<Car> loading) {
+        allCars = null;
+        filteredCars = null;
+        sortedCars = null;
+        pagedCars = null;
+        searchResults = null;
+        tableView.setItems(loading);
+        refreshStats();
+    }
+
+    // Goes back to the cars that were shown before a load that did not finish, unless something else is shown now
+    private void showLoadedCars(DataSourceRegistry.DataSource source, ObservableList<Car> loading) {
+        if (tableView.getItems() != loading) {
+            return;
+        }
+        if (source == currentSource && source.getCars() != null) {
+            showCars(source.getCars());
+        } else {
+            tableView.setItems(FXCollections.observableArrayList());
         }
     }
 
+    /**
+     * Name: trackProgress
+     *
+     * Shows the progress and messages of the task at the bottom of the window
+     * and lets the cancel button stop it.
+     */
+    private void trackProgress(Task<?> task) {
+        progressTask = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        cancelButton.setDisable(false);
+    }
+
+    private void finishProgress(Task<?> task) {
+        if (loadTask == task) {
+            loadTask = null;
+        }
+        if (progressTask == task) {
+            progressBar.progressProperty().unbind();
+            progressBar.setProgress(0);
+            statusLabel.textProperty().unbind();
+            cancelButton.setDisable(true);
+            progressTask = null;
+        }
+    }
+
+    /**
+     * Name: cancelLoad
+     *
+     * Stops loading, importing or exporting the cars when the user presses the cancel button.
+     */
+    @FXML
+    private void cancelLoad() {
+        if (progressTask != null) {
+            progressTask.cancel();
+        }
+    }
+
+    /**
+     * Name: showError
+     *
+     * Shows an error message to the user.
+     *
+     * @param header  what went wrong
+     * @param content what the user can do about it
+     */
+    private void showError(String header, String content) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
     /**
      * Name: removeSelectedCar
      *
@@ -113,21 +867,22 @@ public class CarDealershipController {
     @FXML
     private void removeSelectedCar() {
         Car selectedCar = tableView.getSelectionModel().getSelectedItem();
-        if (selectedCar != null) {
-            try (Connection connection = getConnection();
-                 //removing the car that the user has selected
-                 PreparedStatement statement = connection.prepareStatement("DELETE FROM Cars WHERE id = ?")) {
-                statement.setInt(1, selectedCar.getId());
-                statement.executeUpdate();
-                tableView.getItems().remove(selectedCar);
-            } catch (SQLException e) {
-                e.printStackTrace();
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Error");
-                alert.setHeaderText("Failed to Remove Car");
-                alert.setContentText("An error occurred while removing the car from the database.");
-                alert.showAndWait();
-            }
+        if (selectedCar != null && !isArchived(selectedCar)) {
+            //removing the car that the user has selected
+            Car before = selectedCar.withId(selectedCar.getId());
+            Task<Void> task = getCarService().delete(selectedCar);
+            task.setOnSucceeded(event -> {
+                record(journal -> journal.recordDelete(List.of(before)));
+                removeCarsById(List.of(selectedCar.getId()));
+            });
+            task.setOnFailed(event -> {
+                if (task.getException() instanceof CarConflictException) {
+                    showConflict((CarConflictException) task.getException());
+                    return;
+                }
+                LOG.log(Level.SEVERE, "Could not remove the car", task.getException());
+                showError("Failed to Remove Car", "An error occurred while removing the car from the database.");
+            });
         }
     }
 
@@ -177,7 +932,16 @@ public class CarDealershipController {
         // Convert the result to a car object when the save button is clicked
         dialog.setResultConverter(buttonType -> {
             if (buttonType == saveButton) {
-                if (yearField.getText().isEmpty() || makeField.getText().isEmpty() || modelField.getText().isEmpty() || colorField.getText().isEmpty() || engineField.getText().isEmpty() || transmissionField.getText().isEmpty() || priceField.getText().isEmpty()) {
+                Car editedCar;
+                try {
+                    editedCar = Car.fromFields(selectedCar.getId(), yearField.getText(), makeField.getText(), modelField.getText(), colorField.getText(), engineField.getText(), transmissionField.getText(), priceField.getText());
+                    editedCar.setSold(soldCheckbox.isSelected());
+                    // Saving only works if nobody else saved the car since it was read
+                    editedCar.setVersion(selectedCar.getVersion());
+                } catch (NumberFormatException e) {
+                    showError("Failed to Update Car", "An error occurred while updating the car details.");
+                    return null;
+                } catch (IllegalArgumentException e) {
                     // Show an error message
                     Alert alert = new Alert(Alert.AlertType.ERROR);
                     alert.setTitle("Error");
@@ -186,80 +950,444 @@ public class CarDealershipController {
                     alert.showAndWait();
                     return null;
                 }
-                try (Connection connection = getConnection();
-                     PreparedStatement statement = connection.prepareStatement("UPDATE Cars SET year=?, make=?, model=?, color=?, engine=?, transmission=?, price=?, sold=? WHERE id=?")) {
-                    int year = Integer.parseInt(yearField.getText());
-                    String make = makeField.getText();
-                    String model = modelField.getText();
-                    String color = colorField.getText();
-                    String engine = engineField.getText();
-                    String transmissionType = transmissionField.getText();
-                    double price = Double.parseDouble(priceField.getText());
-                    boolean sold = soldCheckbox.isSelected();
-
-                    //parameters for the prepared statement
-                    statement.setInt(1, year);
-                    statement.setString(2, make);
-                    statement.setString(3, model);
-                    statement.setString(4, color);
-                    statement.setString(5, engine);
-                    statement.setString(6, transmissionType);
-                    statement.setDouble(7, price);
-                    statement.setBoolean(8, sold);
-                    statement.setInt(9, selectedCar.getId());
-
-                    // Execute the update
-                    statement.executeUpdate();
-
-                    // Updating selected car object with the edited details
-                    selectedCar.setYear(year);
-                    selectedCar.setMake(make);
-                    selectedCar.setModel(model);
-                    selectedCar.setColor(color);
-                    selectedCar.setEngine(engine);
-                    selectedCar.setTransmissionType(transmissionType);
-                    selectedCar.setPrice(price);
-                    selectedCar.setSold(sold);
-
-                    // Update TableView
+
+                if (writeBehindCheckBox.isSelected()) {
+                    // The car changes right away and is saved later together with the other edits
+                    Car before = selectedCar.withId(selectedCar.getId());
+                    applyEdit(selectedCar, editedCar);
+                    record(journal -> journal.recordEdit(List.of(before), List.of(selectedCar)));
+                    currentSource.getWriteBehind().submit(selectedCar);
                     tableView.refresh();
-                } catch (SQLException | NumberFormatException e) {
-                    // Show error message
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Error");
-                    alert.setHeaderText("Failed to Update Car");
-                    alert.setContentText("An error occurred while updating the car details.");
-                    alert.showAndWait();
+                    return null;
                 }
+
+                // Execute the update in the background
+                Car before = selectedCar.withId(selectedCar.getId());
+                Task<Void> task = getCarService().update(editedCar);
+                task.setOnSucceeded(event -> {
+                    record(journal -> journal.recordEdit(List.of(before), List.of(editedCar)));
+                    applyEdit(selectedCar, editedCar);
+                });
+                task.setOnFailed(event -> {
+                    if (task.getException() instanceof CarConflictException) {
+                        showConflict((CarConflictException) task.getException());
+                        return;
+                    }
+                    LOG.log(Level.SEVERE, "Could not update the car", task.getException());
+                    // Show error message
+                    showError("Failed to Update Car", "An error occurred while updating the car details.");
+                });
             }
             return null;
         });
         dialog.showAndWait();
     }
 
+    /**
+     * Name: applyEdit
+     *
+     * Updates the selected car object with the edited details, only the cells showing
+     * it will update. The search index, the statistics and the live filter are updated too.
+     *
+     * @param selectedCar the car in the table
+     * @param editedCar   the new details of the car
+     */
+    private void applyEdit(Car selectedCar, Car editedCar) {
+        copyDetails(selectedCar, editedCar);
+        // The car might not match the live filter anymore
+        applyLiveFilter();
+        refreshStats();
+    }
+
+    // Changes the car in the table to the new details and version and updates the search index and statistics
+    private void copyDetails(Car car, Car details) {
+        Car before = car.withId(car.getId());
+        car.setYear(details.getYear());
+        car.setMake(details.getMake());
+        car.setModel(details.getModel());
+        car.setColor(details.getColor());
+        car.setEngine(details.getEngine());
+        car.setTransmissionType(details.getTransmissionType());
+        car.setPrice(details.getPrice());
+        car.setSold(details.isSold());
+        car.setVersion(details.getVersion());
+        car.setArchived(details.isArchived());
+        currentSource.carUpdated(before, car);
+    }
+
+    /**
+     * Name: record
+     *
+     * Writes a change to the undo journal of the database, if it has one.
+     */
+    private void record(Consumer<OperationJournal> change) {
+        recordChange(currentSource == null ? null : currentSource.getJournal(), change);
+        updateUndoButtons();
+    }
+
+    private static void recordChange(OperationJournal journal, Consumer<OperationJournal> change) {
+        if (journal != null) {
+            try {
+                change.accept(journal);
+            } catch (RuntimeException e) {
+                // The change itself was saved, only undoing it will not be possible
+                LOG.log(Level.WARNING, "Could not record the change for undo", e);
+            }
+        }
+    }
+
+    private void updateUndoButtons() {
+        OperationJournal journal = currentSource == null ? null : currentSource.getJournal();
+        undoButton.setDisable(journal == null || !journal.canUndo());
+        redoButton.setDisable(journal == null || !journal.canRedo());
+    }
+
+    @FXML
+    private void undo() {
+        replay(true);
+    }
+
+    @FXML
+    private void redo() {
+        replay(false);
+    }
+
+    /**
+     * Name: replay
+     *
+     * Undoes the newest change in the journal, or redoes the one that was undone last.
+     * All the cars of the change are saved in one transaction in batches, so undoing the
+     * removal of a few hundred cars is one commit. Edits that are still waiting to be
+     * written in the background are written first. A car that someone else changed since
+     * is not touched, the user is shown the conflict and nothing is saved.
+     *
+     * @param undo true to undo, false to redo
+     */
+    private void replay(boolean undo) {
+        DataSourceRegistry.DataSource source = currentSource;
+        OperationJournal journal = source == null ? null : source.getJournal();
+        OperationJournal.Entry entry = journal == null ? null : undo ? journal.peekUndo() : journal.peekRedo();
+        if (entry == null) {
+            return;
+        }
+        source.getWriteBehind().flush();
+        CarService service = source.getCarService();
+        List<CarOperation> operations = undo ? entry.undoOperations() : entry.redoOperations();
+        undoButton.setDisable(true);
+        redoButton.setDisable(true);
+        Task<List<Car>> task = service.write(Metrics.Operation.UNDO, monitor -> {
+            // The cursor is moved inside the transaction, if the journal changed in the meantime nothing is saved
+            try {
+                service.getRepository().applyAll(operations, car -> {
+                }, () -> {
+                    if (undo) {
+                        journal.undone(entry);
+                    } else {
+                        journal.redone(entry);
+                    }
+                });
+            } catch (SQLException | RuntimeException e) {
+                // Saving can still fail after the cursor moved, then it is put back so the change can be tried again
+                journal.moveBack(entry, undo);
+                throw e;
+            }
+            return service.getRepository().findByIds(entry.getIds());
+        });
+        task.setOnSucceeded(event -> {
+            if (source == currentSource) {
+                Set<Integer> removedIds = new HashSet<>(entry.getIds());
+                removedIds.removeAll(idsOf(task.getValue()));
+                if (pagedCars != null) {
+                    pagedCars.reload();
+                    applyLiveFilter();
+                } else {
+                    mergeCars(task.getValue(), removedIds, true);
+                }
+                showStatus((undo ? "Undid " : "Redid ") + entry);
+            }
+            updateUndoButtons();
+        });
+        task.setOnFailed(event -> {
+            updateUndoButtons();
+            if (task.getException() instanceof CarConflictException) {
+                showConflict((CarConflictException) task.getException());
+                return;
+            }
+            LOG.log(Level.SEVERE, "Could not " + (undo ? "undo " : "redo ") + entry, task.getException());
+            showError(undo ? "Failed to Undo" : "Failed to Redo", (undo ? "Undoing " : "Redoing ") + entry + " failed: "
+                    + task.getException().getMessage());
+        });
+    }
+
+    /**
+     * Name: pollChanges
+     *
+     * Reads what other copies of the program, the batch tool or an import changed in
+     * the database since the cars were loaded. Only the changed rows are read, and
+     * only one read runs at a time.
+     */
+    private void pollChanges() {
+        DataSourceRegistry.DataSource source = currentSource;
+        // While the cars are being read the changes wait, the load started reading after the last one it includes
+        if (source == null || source.getCars() == null || source.getChangeSeq() < 0
+                || (changesTask != null && changesTask.isRunning()) || (loadTask != null && loadTask.isRunning())) {
+            return;
+        }
+        long afterSeq = source.getChangeSeq();
+        CarService service = source.getCarService();
+        Task<CarChanges> task = service.read(Metrics.Operation.CHANGES, monitor -> service.getRepository().findChanges(afterSeq, CHANGES_LIMIT));
+        changesTask = task;
+        task.setOnSucceeded(event -> applyChanges(source, afterSeq, task.getValue()));
+        task.setOnFailed(event -> LOG.log(Level.WARNING, "Could not read the changes of " + source.getPath(), task.getException()));
+    }
+
+    /**
+     * Name: applyChanges
+     *
+     * Puts the cars that changed in the database into the table. Cars with an edit
+     * that is still waiting to be written keep the edit, and cars that are already
+     * up to date are left alone, like the ones this copy of the program saved.
+     *
+     * @param source   the database the changes were read from
+     * @param afterSeq where the read started, if the cars were loaded again since then it is thrown away
+     * @param changes  what changed
+     */
+    private void applyChanges(DataSourceRegistry.DataSource source, long afterSeq, CarChanges changes) {
+        if (source != currentSource || source.getChangeSeq() != afterSeq) {
+            return;
+        }
+        if (!changes.isComplete()) {
+            // The log was cleaned up past where these cars were loaded, so every car is read again
+            LOG.info("The change log of " + source.getPath() + " was cleaned up, reading every car again");
+            source.setChangeSeq(-1);
+            loadCarsFile();
+            return;
+        }
+        source.setChangeSeq(changes.getLastSeq());
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (pagedCars != null) {
+            pagedCars.reload();
+            applyLiveFilter();
+            return;
+        }
+        List<Car> currentCars = changes.getChangedCars();
+        Collection<Integer> removedIds = changes.getRemovedIds();
+        if (!changes.getArchivedCars().isEmpty()) {
+            // Moved to the archive, they stay in the table as archived cars only if the archive is shown
+            if (source.isArchivedIncluded()) {
+                currentCars = new ArrayList<>(currentCars);
+                currentCars.addAll(changes.getArchivedCars());
+            } else {
+                removedIds = new HashSet<>(removedIds);
+                removedIds.addAll(idsOf(changes.getArchivedCars()));
+            }
+        }
+        int changed = mergeCars(currentCars, removedIds, false);
+        if (changed > 0) {
+            showStatus(String.format("%,d cars were changed by someone else", changed));
+        }
+    }
+
+    /**
+     * Name: mergeCars
+     *
+     * @param currentCars cars as they are in the database now
+     * @param removedIds  ids of cars that are not in the database anymore
+     * @param force       true to replace the cars even if they have an edit waiting to be written
+     * @return how many cars in the table were added, changed or removed
+     */
+    private int mergeCars(List<Car> currentCars, Collection<Integer> removedIds, boolean force) {
+        if (allCars == null) {
+            return 0;
+        }
+        WriteBehindQueue writeBehind = currentSource.getWriteBehind();
+        Map<Integer, Car> loaded = loadedCarsById(idsOf(currentCars));
+        int changed = 0;
+        for (Car car : currentCars) {
+            Car shown = loaded.get(car.getId());
+            if (shown == null) {
+                allCars.add(car);
+                currentSource.carAdded(car);
+                changed++;
+            } else if (force || car.isArchived() != shown.isArchived() || (car.getVersion() > shown.getVersion()
+                    && writeBehind.getState(car.getId()) != WriteBehindQueue.State.PENDING)) {
+                copyDetails(shown, car);
+                changed++;
+            }
+        }
+        if (!removedIds.isEmpty()) {
+            int before = allCars.size();
+            removeCarsById(removedIds);
+            changed += before - allCars.size();
+        }
+        applyLiveFilter();
+        refreshStats();
+        tableView.refresh();
+        return changed;
+    }
+
+    /**
+     * Name: showConflict
+     *
+     * Tells the user their change was not saved because someone else saved the car
+     * first, and shows the car the way it is in the database now.
+     */
+    private void showConflict(CarConflictException conflict) {
+        LOG.info(conflict.getMessage());
+        Set<Integer> removedIds = new HashSet<>(conflict.getIds());
+        removedIds.removeAll(idsOf(conflict.getCurrentCars()));
+        if (pagedCars != null) {
+            pagedCars.reload();
+        } else {
+            mergeCars(conflict.getCurrentCars(), removedIds, true);
+        }
+        showError("Changed by Someone Else", String.format("%s while you were working on it, so your change was not saved. "
+                + "The current details are shown now, make the change again if it is still needed.", conflict.getMessage()));
+    }
+
+    /**
+     * Name: loadedCarsById
+     *
+     * @param ids the ids of the cars to look for
+     * @return the cars in allCars with those ids, using the search index when it is built
+     */
+    private Map<Integer, Car> loadedCarsById(Collection<Integer> ids) {
+        Map<Integer, Car> found = new HashMap<>();
+        if (allCars == null || ids.isEmpty()) {
+            return found;
+        }
+        InventoryIndex index = currentSource.getIndex();
+        if (index.isBuilt()) {
+            for (Integer id : ids) {
+                Car car = index.get(id);
+                if (car != null) {
+                    found.put(id, car);
+                }
+            }
+            return found;
+        }
+        Set<Integer> wanted = new HashSet<>(ids);
+        for (Car car : allCars) {
+            if (wanted.contains(car.getId())) {
+                found.put(car.getId(), car);
+            }
+        }
+        return found;
+    }
+
+    private static List<Integer> idsOf(Collection<Car> cars) {
+        List<Integer> ids = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            ids.add(car.getId());
+        }
+        return ids;
+    }
+
     /**
      * Name: uploadFile
      * <p>
      * This is what the user will be seeing when they select the upload File
-     * button. It is made to where the user can only select a SQL or SQLite file.
+     * button. It is made to where the user can only select a SQL, SQLite or CSV file.
+     * CSV files and SQL files of INSERT statements are imported into the database.
      */
     @FXML
     private void uploadFile() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Car Data File");
 
-        // Only allow SQL & SQLite files
-        FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("SQL & SQLite files (*.sql *.db, *.sqlite)", "*.sql, SQLite files (*.db, *.sqlite)", "*.db", "*.sqlite");
-        fileChooser.getExtensionFilters().add(extFilter);
+        // Only allow SQL, SQLite & CSV files
+        FileChooser.ExtensionFilter allFilter = new FileChooser.ExtensionFilter("SQL, SQLite & CSV files (*.sql, *.db, *.sqlite, *.csv)", "*.sql", "*.db", "*.sqlite", "*.csv", "*.txt");
+        FileChooser.ExtensionFilter databaseFilter = new FileChooser.ExtensionFilter("SQLite files (*.db, *.sqlite)", "*.db", "*.sqlite");
+        FileChooser.ExtensionFilter importFilter = new FileChooser.ExtensionFilter("Inventory files to import (*.csv, *.sql, *.txt)", "*.csv", "*.sql", "*.txt");
+        fileChooser.getExtensionFilters().addAll(allFilter, databaseFilter, importFilter);
 
         File selectedFile = fileChooser.showOpenDialog(null);
 
         if (selectedFile != null) {
-            loadCarsFile();
+            if (CarImporter.isImportFile(selectedFile.getName())) {
+                importFile(selectedFile);
+            } else {
+                openDatabase(selectedFile.toPath());
+            }
             addCarButton.setDisable(false);
         }
     }
 
+    /**
+     * Name: importFile
+     *
+     * Imports the cars in a CSV or SQL file into the database in the background,
+     * showing how far along it is and how many rows a second are being added.
+     *
+     * @param file the file the user picked
+     */
+    private void importFile(File file) {
+        CarService service = getCarService();
+        if (service == null) {
+            return;
+        }
+        CarImporter importer = new CarImporter(service.getRepository().getConnectionPool());
+        Task<CarImporter.ImportResult> task = service.write(Metrics.Operation.IMPORT, monitor -> importer.importFile(file.toPath(), monitor));
+        trackProgress(task);
+        task.setOnSucceeded(event -> {
+            finishProgress(task);
+            statusLabel.setText(task.getValue().toString());
+            loadCarsFile();
+        });
+        task.setOnCancelled(event -> {
+            finishProgress(task);
+            // The transactions that were already committed stay in the database
+            loadCarsFile();
+        });
+        task.setOnFailed(event -> {
+            finishProgress(task);
+            LOG.log(Level.SEVERE, "Could not import the cars", task.getException());
+            showError("Failed to Import Cars", "An error occurred while importing " + file.getName() + ": " + task.getException().getMessage());
+            loadCarsFile();
+        });
+    }
+
+
+    /**
+     * Name: exportCars
+     * <p>
+     * Lets the user pick where to save every car in the database as a CSV or JSON
+     * file. Picking a name ending in .gz gzips the file. The cars are written in the
+     * background and the cancel button stops it.
+     */
+    @FXML
+    private void exportCars() {
+        CarService service = getCarService();
+        if (service == null) {
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Cars");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON files (*.json)", "*.json"),
+                new FileChooser.ExtensionFilter("Gzipped CSV or JSON files (*.csv.gz, *.json.gz)", "*.csv.gz", "*.json.gz"));
+
+        File selectedFile = fileChooser.showSaveDialog(null);
+
+        if (selectedFile != null) {
+            CarExporter exporter = new CarExporter(service.getRepository().getConnectionPool());
+            Task<Long> task = service.read(Metrics.Operation.EXPORT, monitor -> exporter.exportFile(selectedFile.toPath(), monitor));
+            trackProgress(task);
+            task.setOnSucceeded(event -> {
+                finishProgress(task);
+                statusLabel.setText(String.format("Exported %,d cars to %s", task.getValue(), selectedFile.getName()));
+            });
+            task.setOnCancelled(event -> finishProgress(task));
+            task.setOnFailed(event -> {
+                finishProgress(task);
+                LOG.log(Level.SEVERE, "Could not export the cars", task.getException());
+                showError("Failed to Export Cars", "An error occurred while writing " + selectedFile.getName() + ".");
+            });
+        }
+    }
 
     /**
      * Name: addCarDialog
@@ -269,6 +1397,9 @@ public class CarDealershipController {
      */
     @FXML
     private void addCarDialog() {
+        if (getCarService() == null) {
+            return;
+        }
         Dialog<Car> dialog = new Dialog<>();
         dialog.setTitle("Add Car");
         dialog.setHeaderText("Enter Car Details");
@@ -302,9 +1433,15 @@ public class CarDealershipController {
 
         dialog.setResultConverter(buttonType -> {
             if (buttonType == addButton) {
-                // Validate that all fields are not empty
-                if (yearField.getText().isEmpty() || makeField.getText().isEmpty() || modelField.getText().isEmpty() || colorField.getText().isEmpty() || engineField.getText().isEmpty() || transmissionField.getText().isEmpty() || priceField.getText().isEmpty()) {
-                    // Show an error message
+                // The fields are checked the same way as the lines of a CarDealershipCli batch file
+                Car newCar;
+                try {
+                    newCar = Car.fromFields(0, yearField.getText(), makeField.getText(), modelField.getText(), colorField.getText(), engineField.getText(), transmissionField.getText(), priceField.getText());
+                } catch (NumberFormatException e) {
+                    showError("Failed to Add Car", "An error occurred while adding the car to the database.");
+                    return null;
+                } catch (IllegalArgumentException e) {
+                    // One of the fields was left empty
                     Alert alert = new Alert(Alert.AlertType.ERROR);
                     alert.setTitle("Error");
                     alert.setHeaderText("Incomplete Fields");
@@ -312,28 +1449,30 @@ public class CarDealershipController {
                     alert.showAndWait();
                     return null;
                 }
-                try (Connection connection = getConnection();
-                     PreparedStatement statement = connection.prepareStatement("INSERT INTO Cars (year, make, model, color, engine, transmission, price, sold) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
-                    statement.setInt(1, Integer.parseInt(yearField.getText()));
-                    statement.setString(2, makeField.getText());
-                    statement.setString(3, modelField.getText());
-                    statement.setString(4, colorField.getText());
-                    statement.setString(5, engineField.getText());
-                    statement.setString(6, transmissionField.getText());
-                    statement.setDouble(7, Double.parseDouble(priceField.getText()));
-                    statement.setInt(8, 0);
-
-                    statement.executeUpdate();
-                    loadCarsFile();
-                } catch (SQLException e) {
-                    e.printStackTrace();
+
+                Task<Car> task = getCarService().insert(newCar);
+                // Only the new car is added to the table instead of reading every car again
+                task.setOnSucceeded(event -> {
+                    if (pagedCars != null) {
+                        pagedCars.reload();
+                        applyLiveFilter();
+                    } else if (allCars != null) {
+                        // The change log poll might have added it already
+                        if (loadedCarsById(List.of(task.getValue().getId())).isEmpty()) {
+                            allCars.add(task.getValue());
+                            currentSource.carAdded(task.getValue());
+                        }
+                        applyLiveFilter();
+                        refreshStats();
+                    } else {
+                        loadCarsFile();
+                    }
+                });
+                task.setOnFailed(event -> {
+                    LOG.log(Level.SEVERE, "Could not add the car", task.getException());
                     // Show an error message
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Error");
-                    alert.setHeaderText("Failed to Add Car");
-                    alert.setContentText("An error occurred while adding the car to the database.");
-                    alert.showAndWait();
-                }
+                    showError("Failed to Add Car", "An error occurred while adding the car to the database.");
+                });
             }
             return null;
         });
@@ -350,11 +1489,62 @@ public class CarDealershipController {
     @FXML
     public void editSelectedCar() {
         Car selectedCar = tableView.getSelectionModel().getSelectedItem();
-        if (selectedCar != null) {
+        if (selectedCar != null && !isArchived(selectedCar)) {
             editCarDialog(selectedCar);
         }
     }
 
+    // Archived cars are kept the way they were sold, so they can be looked at but not changed
+    private boolean isArchived(Car car) {
+        if (car.isArchived()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Information");
+            alert.setHeaderText("Archived Car");
+            alert.setContentText("This car was sold and moved to the archive, it can not be changed.");
+            alert.showAndWait();
+        }
+        return car.isArchived();
+    }
+
+    /**
+     * Name: removeCarsById
+     *
+     * Removes the cars from allCars by their id. removeAll on an ObservableList
+     * removes the rows one at a time and shifts the rest of the list each time, so
+     * instead the cars that are kept are collected in one pass over the list and
+     * put back with setAll, which is one change for the table. The cars are also
+     * taken out of the search index. When the cars are shown a page at a time the
+     * pages are read again instead.
+     *
+     * @param removedIds the ids of the cars that were removed from the database
+     */
+    private void removeCarsById(Collection<Integer> removedIds) {
+        if (pagedCars != null) {
+            pagedCars.reload();
+            applyLiveFilter();
+            return;
+        }
+        if (allCars == null) {
+            return;
+        }
+        Set<Integer> idSet = new HashSet<>(removedIds);
+        List<Car> kept = new ArrayList<>(allCars.size());
+        List<Car> carsToRemove = new ArrayList<>();
+        for (Car car : allCars) {
+            if (idSet.contains(car.getId())) {
+                carsToRemove.add(car);
+            } else {
+                kept.add(car);
+            }
+        }
+        if (carsToRemove.isEmpty()) {
+            return;
+        }
+        allCars.setAll(kept);
+        currentSource.carsRemoved(carsToRemove);
+        refreshStats();
+    }
+
     /**
      * Name: removeFilteredCars
      *
@@ -364,13 +1554,10 @@ public class CarDealershipController {
      */
     @FXML
     private void removeFilteredCars() {
-        String yearFilter = yearFilterField.getText().trim();
-        String makeFilter = makeFilterField.getText().trim();
-        String modelFilter = modelFilterField.getText().trim();
-        String colorFilter = colorFilterField.getText().trim();
+        CarFilter filter = buildFilter(false);
 
-        // Check if at least one filter field contains a value
-        if (yearFilter.isEmpty() && makeFilter.isEmpty() && modelFilter.isEmpty() && colorFilter.isEmpty()) {
+        // Check if at least one filter field or range contains a value
+        if (filter.isEmpty()) {
             // Show a message that a filter needs to be applied
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Information");
@@ -380,61 +1567,65 @@ public class CarDealershipController {
             return;
         }
 
-        // Create a list to hold all filter predicates
-        List<Predicate<Car>> filterPredicates = new ArrayList<>();
-        // Add filter predicates based on the values in filter fields
-        if (!yearFilter.isEmpty()) {
-            filterPredicates.add(car -> String.valueOf(car.getYear()).equals(yearFilter));
-        }
-
-        if (!makeFilter.isEmpty()) {
-            filterPredicates.add(car -> car.getMake().equalsIgnoreCase(makeFilter));
-        }
-
-        if (!modelFilter.isEmpty()) {
-            filterPredicates.add(car -> car.getModel().equalsIgnoreCase(modelFilter));
+        CarService service = getCarService();
+        if (service == null) {
+            return;
         }
-
-        if (!colorFilter.isEmpty()) {
-            filterPredicates.add(car -> car.getColor().equalsIgnoreCase(colorFilter));
+        InventoryIndex index = currentSource.getIndex();
+        // A big removal is written to the undo journal on the writer thread so the window does not wait for it
+        OperationJournal journal = currentSource.getJournal();
+        Task<List<Car>> task;
+        // Set when some of the cars were changed by someone else and were not removed
+        AtomicReference<CarConflictException> conflict = new AtomicReference<>();
+        if (allCars != null && index.isBuilt()) {
+            // Every car is in memory, so the search index finds them and only their ids are deleted
+            List<Car> matches = index.find(filter);
+            matches.removeIf(Car::isArchived);
+            task = service.write(Metrics.Operation.BULK_DELETE, monitor -> {
+                List<Car> removed = new ArrayList<>(matches);
+                try {
+                    service.getRepository().deleteAll(matches);
+                } catch (CarConflictException e) {
+                    // The other cars were still removed
+                    Set<Integer> kept = new HashSet<>(e.getIds());
+                    removed.removeIf(car -> kept.contains(car.getId()));
+                    conflict.set(e);
+                }
+                recordChange(journal, change -> change.recordDelete(removed));
+                return removed;
+            });
+        } else {
+            // The database finds and removes the matching cars using its indexes, the rows are read first for undo
+            task = service.write(Metrics.Operation.BULK_DELETE, monitor -> {
+                List<Car> removed = service.getRepository().deleteMatchingCars(filter);
+                recordChange(journal, change -> change.recordDelete(removed));
+                return removed;
+            });
         }
-        // Combine all predicates with AND logic
-        Predicate<Car> combinedPredicate = filterPredicates.stream().reduce(Predicate::and).orElse(car -> true);
-
-        // Apply the combined filter to get filtered cars
-        ObservableList<Car> filteredCars = allCars.filtered(combinedPredicate);
+        task.setOnSucceeded(event -> {
+            updateUndoButtons();
+            // Check if any cars matched the filter
+            if (!task.getValue().isEmpty()) {
+                // Remove the filtered cars from the existing list
+                removeCarsById(idsOf(task.getValue()));
 
-        // Check if any cars match the filter
-        if (!filteredCars.isEmpty()) {
-            // Remove the filtered cars from the database
-            try (Connection connection = getConnection()) {
-                for (Car car : filteredCars) {
-                    String deleteQuery = "DELETE FROM Cars WHERE id = ?";
-                    try (PreparedStatement statement = connection.prepareStatement(deleteQuery)) {
-                        statement.setInt(1, car.getId());
-                        statement.executeUpdate();
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Error");
-                alert.setHeaderText("Failed to Remove Cars from Database");
-                alert.setContentText("An error occurred while removing cars from the database.");
-                alert.showAndWait();
-                return;
+                // Clear the filter fields
+                yearFilterField.clear();
+                makeFilterField.clear();
+                modelFilterField.clear();
+                colorFilterField.clear();
+                minYearField.clear();
+                maxYearField.clear();
+                minPriceField.clear();
+                maxPriceField.clear();
             }
-
-            // Remove the filtered cars from the existing list
-            allCars.removeAll(filteredCars);
-
-            // Update the TableView items
-            tableView.setItems(allCars);
-            // Clear the filter fields
-            yearFilterField.clear();
-            makeFilterField.clear();
-            modelFilterField.clear();
-            colorFilterField.clear();
-        }
+            if (conflict.get() != null) {
+                showConflict(conflict.get());
+            }
+        });
+        task.setOnFailed(event -> {
+            LOG.log(Level.SEVERE, "Could not remove the cars", task.getException());
+            showError("Failed to Remove Cars from Database", "An error occurred while removing cars from the database.");
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarExporter.java
+ * This class writes every car in the database to a CSV or JSON file, and can gzip
+ * the file while it is being written. The rows go straight from the database into
+ * the file a few at a time, so no Car objects are made and the whole table is never
+ * in memory. Each row is built in one reused buffer instead of joining Strings.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+public class CarExporter {
+    // How many rows SQLite hands over at a time
+    private static final int FETCH_SIZE = 1000;
+    private static final String[] COLUMNS = {"id", "year", "make", "model", "color", "engine", "transmission", "price", "sold"};
+
+    private final ConnectionPool connectionPool;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] lineChars = new char[256];
+
+    /**
+     * Name: Format
+     *
+     * The kinds of files that can be written.
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    public CarExporter(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Name: formatFor
+     *
+     * @param fileName the name of the file to write, like cars.json.gz
+     * @return JSON for .json and .json.gz files, CSV for everything else
+     */
+    public static Format formatFor(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".json.gz") ? Format.JSON : Format.CSV;
+    }
+
+    /**
+     * Name: exportFile
+     *
+     * Writes every car to the file. Files ending in .gz are gzipped.
+     *
+     * @param file    the file to write
+     * @param monitor gets told how many cars have been written and is checked for cancel
+     * @return how many cars were written
+     * @throws IOException
+     * @throws SQLException
+     * @throws CancellationException if the monitor was cancelled, the file is left unfinished
+     */
+    public long exportFile(Path file, ProgressMonitor monitor) throws IOException, SQLException {
+        boolean gzip = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            return export(output, formatFor(file.getFileName().toString()), gzip, monitor);
+        }
+    }
+
+    /**
+     * Name: export
+     *
+     * Writes every car in id order to the stream. The stream is not closed.
+     *
+     * @param output  where to write the cars
+     * @param format  CSV or JSON
+     * @param gzip    true to gzip what is written
+     * @param monitor gets told how many cars have been written and is checked for cancel
+     * @return how many cars were written
+     * @throws IOException
+     * @throws SQLException
+     */
+    public long export(OutputStream output, Format format, boolean gzip, ProgressMonitor monitor) throws IOException, SQLException {
+        OutputStream target = new BufferedOutputStream(new NonClosingOutputStream(output), 1 << 16);
+        if (gzip) {
+            target = new GZIPOutputStream(target, 1 << 16);
+        }
+        long total = new CarRepository(connectionPool).count();
+        long rows = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+             PooledConnection connection = connectionPool.borrow();
+             PreparedStatement statement = connection.getConnection().prepareStatement(
+                     "SELECT id, year, make, model, color, engine, transmission, price, sold FROM Cars ORDER BY id")) {
+            statement.setFetchSize(FETCH_SIZE);
+            writeStart(writer, format);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        appendCsvRow(resultSet);
+                    } else {
+                        appendJsonRow(resultSet, rows == 0);
+                    }
+                    writeLine(writer);
+                    rows++;
+                    if (rows % FETCH_SIZE == 0) {
+                        if (monitor.isCancelled()) {
+                            throw new CancellationException("Export was cancelled");
+                        }
+                        monitor.progress(rows, total);
+                    }
+                }
+            }
+            if (format == Format.JSON) {
+                writer.write(rows == 0 ? "]\n" : "\n]\n");
+            }
+        }
+        monitor.progress(rows, rows);
+        monitor.message(String.format("Exported %,d cars", rows));
+        return rows;
+    }
+
+    private void writeStart(Writer writer, Format format) throws IOException {
+        if (format == Format.CSV) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        } else {
+            writer.write('[');
+        }
+    }
+
+    private void appendCsvRow(ResultSet resultSet) throws SQLException {
+        line.append(resultSet.getInt(1)).append(',')
+                .append(resultSet.getInt(2)).append(',');
+        for (int column = 3; column <= 7; column++) {
+            appendCsvText(resultSet.getString(column));
+            line.append(',');
+        }
+        line.append(resultSet.getDouble(8)).append(',')
+                .append(resultSet.getInt(9)).append('\n');
+    }
+
+    private void appendCsvText(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void appendJsonRow(ResultSet resultSet, boolean first) throws SQLException {
+        line.append(first ? "\n" : ",\n");
+        line.append("{\"id\":").append(resultSet.getInt(1))
+                .append(",\"year\":").append(resultSet.getInt(2));
+        for (int column = 3; column <= 7; column++) {
+            line.append(",\"").append(COLUMNS[column - 1]).append("\":");
+            appendJsonText(resultSet.getString(column));
+        }
+        line.append(",\"price\":").append(resultSet.getDouble(8))
+                .append(",\"sold\":").append(resultSet.getInt(9) != 0)
+                .append('}');
+    }
+
+    private void appendJsonText(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    // Copies the row buffer into the writer without turning it into a String
+    private void writeLine(Writer writer) throws IOException {
+        int length = line.length();
+        if (lineChars.length < length) {
+            lineChars = new char[Math.max(length, lineChars.length * 2)];
+        }
+        line.getChars(0, length, lineChars, 0);
+        writer.write(lineChars, 0, length);
+    }
+
+    // Lets us close the writers (which finishes the gzip) without closing System.out
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarFilter.java
+ * This class holds what the user typed in the filter fields. It can check a car
+ * in memory, or be turned into a WHERE clause by CarQuery so the database does the
+ * filtering. Make, model and color are matched without caring about upper or lower case.
+ * A prefix filter matches values that start with what was typed, which is what the
+ * live filter uses while the user is still typing. The year and price can also be
+ * limited to a range, like 2015 to 2020 and under $30,000.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+public class CarFilter {
+    private final String year;
+    private final String make;
+    private final String model;
+    private final String color;
+    private final boolean prefix;
+    // The year as a number, worked out once instead of for every car that is checked
+    private final int yearValue;
+    private final int minYear;
+    private final int maxYear;
+    private final double minPrice;
+    private final double maxPrice;
+
+    /**
+     * Name: CarFilter
+     *
+     * Empty values mean that the field is not filtered on.
+     */
+    public CarFilter(String year, String make, String model, String color) {
+        this(year, make, model, color, false);
+    }
+
+    /**
+     * Name: CarFilter
+     *
+     * @param prefix true to match values starting with the filter instead of the whole value
+     */
+    public CarFilter(String year, String make, String model, String color, boolean prefix) {
+        this(year, make, model, color, prefix, Integer.MIN_VALUE, Integer.MAX_VALUE, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    private CarFilter(String year, String make, String model, String color, boolean prefix,
+                      int minYear, int maxYear, double minPrice, double maxPrice) {
+        this.year = clean(year);
+        this.make = clean(make);
+        this.model = clean(model);
+        this.color = clean(color);
+        this.prefix = prefix;
+        this.yearValue = this.year.matches("\\d{1,9}") ? Integer.parseInt(this.year) : -1;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Name: withYearRange
+     *
+     * @param minYear the lowest year, or Integer.MIN_VALUE for no lowest year
+     * @param maxYear the highest year, or Integer.MAX_VALUE for no highest year
+     * @return a copy of this filter that also only matches cars from minYear to maxYear
+     */
+    public CarFilter withYearRange(int minYear, int maxYear) {
+        return new CarFilter(year, make, model, color, prefix, minYear, maxYear, minPrice, maxPrice);
+    }
+
+    /**
+     * Name: withPriceRange
+     *
+     * @param minPrice the lowest price, or Double.NEGATIVE_INFINITY for no lowest price
+     * @param maxPrice the highest price, or Double.POSITIVE_INFINITY for no highest price
+     * @return a copy of this filter that also only matches cars from minPrice to maxPrice
+     */
+    public CarFilter withPriceRange(double minPrice, double maxPrice) {
+        return new CarFilter(year, make, model, color, prefix, minYear, maxYear, minPrice, maxPrice);
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean hasYearRange() {
+        return minYear != Integer.MIN_VALUE || maxYear != Integer.MAX_VALUE;
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Name: isEmpty
+     *
+     * @return true if none of the fields are filtered on
+     */
+    public boolean isEmpty() {
+        return year.isEmpty() && make.isEmpty() && model.isEmpty() && color.isEmpty() && !hasYearRange() && !hasPriceRange();
+    }
+
+    /**
+     * Name: getYearValue
+     *
+     * @return the year as a number, or -1 if the year is not a valid number so nothing can match it
+     */
+    public int getYearValue() {
+        return yearValue;
+    }
+
+    /**
+     * Name: matches
+     *
+     * @param car the car to check
+     * @return true if the car matches every field that is filtered on
+     */
+    public boolean matches(Car car) {
+        if (!year.isEmpty() && !matchesYear(car.getYear())) {
+            return false;
+        }
+        if (car.getYear() < minYear || car.getYear() > maxYear || car.getPrice() < minPrice || car.getPrice() > maxPrice) {
+            return false;
+        }
+        if (!make.isEmpty() && !matchesText(make, car.getMake())) {
+            return false;
+        }
+        if (!model.isEmpty() && !matchesText(model, car.getModel())) {
+            return false;
+        }
+        return color.isEmpty() || matchesText(color, car.getColor());
+    }
+
+    /**
+     * Name: matchesYear
+     *
+     * @param carYear the year of a car
+     * @return true if the year matches the year filter, or starts with it for a prefix filter
+     */
+    public boolean matchesYear(int carYear) {
+        if (yearValue < 0) {
+            return false;
+        }
+        return prefix ? Integer.toString(carYear).startsWith(year) : carYear == yearValue;
+    }
+
+    private boolean matchesText(String filter, String value) {
+        if (value == null) {
+            return false;
+        }
+        if (prefix) {
+            return value.regionMatches(true, 0, filter, 0, filter.length());
+        }
+        return filter.equalsIgnoreCase(value);
+    }
+
+    @Override
+    public String toString() {
+        return "CarFilter[year=" + year + ", make=" + make + ", model=" + model + ", color=" + color + ", prefix=" + prefix
+                + ", years=" + minYear + ".." + maxYear + ", prices=" + minPrice + ".." + maxPrice + "]";
+    }
+}
@@ -0,0 +1,693 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarImporter.java
+ * This class adds cars to the database from a CSV file (with a header line naming
+ * the columns) or from a file of "INSERT INTO Cars (...) VALUES (...), (...);" statements
+ * like database data.txt. The file is read a little at a time so even very big files
+ * use the same amount of memory, and the rows are inserted in large batches through one
+ * reused prepared statement. It can also be run by itself from the command line:
+ *
+ *     java org.nicholas.guicardealershipsystem.CarImporter CarDealership.db inventory.csv
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+public class CarImporter {
+    // Rows sent to the database in one executeBatch
+    private static final int BATCH_SIZE = 1000;
+    // Rows committed in one transaction
+    private static final int TRANSACTION_SIZE = 50_000;
+    private static final String[] COLUMNS = {"id", "year", "make", "model", "color", "engine", "transmission", "price", "sold"};
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Name: ImportResult
+     *
+     * How many rows were imported and how long it took.
+     */
+    public static class ImportResult {
+        private final long rows;
+        private final long nanos;
+
+        ImportResult(long rows, long nanos) {
+            this.rows = rows;
+            this.nanos = nanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getSeconds() {
+            return nanos / 1_000_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return nanos == 0 ? 0 : rows / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %,d cars in %.1f seconds (%,.0f rows/s)", rows, getSeconds(), getRowsPerSecond());
+        }
+    }
+
+    public CarImporter(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Name: isImportFile
+     *
+     * @param fileName the name of the file the user picked
+     * @return true if the file is a CSV or SQL file that can be imported
+     */
+    public static boolean isImportFile(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".sql") || name.endsWith(".txt");
+    }
+
+    /**
+     * Name: importFile
+     *
+     * Reads the file and inserts every car in it. Every TRANSACTION_SIZE rows are
+     * committed together, so if something goes wrong the rows in the transaction that
+     * failed are rolled back but the transactions before it stay in the database.
+     *
+     * @param file    a .csv file, or a .sql / .txt file of INSERT statements
+     * @param monitor gets told how many bytes of the file have been read
+     * @return how many rows were imported and how fast
+     * @throws IOException  if the file could not be read or is not in the right format
+     * @throws SQLException if the rows could not be inserted
+     * @throws CancellationException if the monitor was cancelled
+     */
+    public ImportResult importFile(Path file, ProgressMonitor monitor) throws IOException, SQLException {
+        long totalBytes = Files.size(file);
+        long start = System.nanoTime();
+        boolean csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+
+        try (CountingInputStream input = new CountingInputStream(Files.newInputStream(file));
+             Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+             PooledConnection connection = connectionPool.borrow()) {
+            RowParser parser = csv ? new CsvParser(reader) : new InsertParser(reader);
+            BatchInserter inserter = new BatchInserter(connection);
+            long lastReport = 0;
+            try {
+                List<String> row;
+                while ((row = parser.next()) != null) {
+                    inserter.insert(parser.getColumns(), row, parser.getLine());
+                    if (inserter.rows % BATCH_SIZE == 0) {
+                        if (monitor.isCancelled()) {
+                            throw new CancellationException("Import was cancelled");
+                        }
+                        long now = System.nanoTime();
+                        if (now - lastReport > 250_000_000L) {
+                            lastReport = now;
+                            monitor.progress(input.count, totalBytes);
+                            monitor.message(String.format("%,d cars imported (%,.0f rows/s)", inserter.rows, inserter.rows / ((now - start) / 1_000_000_000.0)));
+                        }
+                    }
+                }
+                inserter.finish();
+            } catch (IOException | SQLException | RuntimeException e) {
+                inserter.abort(e);
+                throw e;
+            }
+            ImportResult result = new ImportResult(inserter.rows, System.nanoTime() - start);
+            monitor.progress(totalBytes, totalBytes);
+            monitor.message(result.toString());
+            return result;
+        }
+    }
+
+    /**
+     * Name: BatchInserter
+     *
+     * Inserts the rows through one prepared statement, sending them in batches and
+     * committing every TRANSACTION_SIZE rows.
+     */
+    private static class BatchInserter {
+        private final PooledConnection connection;
+        private final Connection raw;
+        private List<String> preparedColumns;
+        // For each column in the file, which of COLUMNS it is
+        private int[] columnIndexes;
+        private PreparedStatement statement;
+        private long rows;
+        private int batched;
+        private int uncommitted;
+
+        BatchInserter(PooledConnection connection) throws SQLException {
+            this.connection = connection;
+            this.raw = connection.getConnection();
+            raw.setAutoCommit(false);
+        }
+
+        void insert(List<String> columns, List<String> values, long line) throws IOException, SQLException {
+            if (columns != preparedColumns) {
+                prepare(columns);
+            }
+            if (values.size() != columnIndexes.length) {
+                throw new IOException("Line " + line + ": expected " + columnIndexes.length + " values but found " + values.size());
+            }
+            try {
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    bind(i + 1, COLUMNS[columnIndexes[i]], values.get(i));
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + line + ": " + e.getMessage(), e);
+            }
+            statement.addBatch();
+            rows++;
+            if (++batched == BATCH_SIZE) {
+                statement.executeBatch();
+                batched = 0;
+            }
+            if (++uncommitted == TRANSACTION_SIZE) {
+                flush();
+                raw.commit();
+                uncommitted = 0;
+            }
+        }
+
+        // Builds the INSERT for the columns that are in the file, in the order of the file
+        private void prepare(List<String> columns) throws IOException, SQLException {
+            flush();
+            List<String> insertColumns = new ArrayList<>();
+            columnIndexes = new int[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                int column = columnIndex(columns.get(i));
+                if (column < 0) {
+                    throw new IOException("Unknown column: " + columns.get(i));
+                }
+                insertColumns.add(COLUMNS[column]);
+                columnIndexes[i] = column;
+            }
+            // A row without an id gets a new one that was never used, like a car added in the window
+            List<String> values = new ArrayList<>();
+            for (String column : insertColumns) {
+                values.add(column.equals("id") ? "COALESCE(?, " + CarRepository.NEXT_ID_SQL + ")" : "?");
+            }
+            boolean hasIds = insertColumns.contains("id");
+            if (!hasIds) {
+                insertColumns.add(0, "id");
+                values.add(0, CarRepository.NEXT_ID_SQL);
+            }
+            String sql = "INSERT INTO Cars (" + String.join(", ", insertColumns) + ") VALUES (" + String.join(", ", values) + ")";
+            if (hasIds) {
+                // Rows that already exist with the same id are updated so the same feed can be loaded again.
+                // It is not INSERT OR REPLACE, that deletes the old row without running the delete triggers,
+                // so CarsSearch would keep the old words and CarChanges would not log it.
+                List<String> updates = new ArrayList<>();
+                for (String column : insertColumns) {
+                    if (!column.equals("id")) {
+                        updates.add(column + " = excluded." + column);
+                    }
+                }
+                updates.add("version = version + 1");
+                updates.add("updated_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000");
+                sql += " ON CONFLICT(id) DO UPDATE SET " + String.join(", ", updates);
+            }
+            statement = connection.prepare(sql);
+            preparedColumns = columns;
+        }
+
+        private void bind(int parameter, String column, String value) throws SQLException {
+            if (value == null || (value.isEmpty() && !isText(column))) {
+                statement.setNull(parameter, column.equals("price") ? Types.REAL : Types.INTEGER);
+                return;
+            }
+            switch (column) {
+                case "id":
+                case "year":
+                    statement.setInt(parameter, Integer.parseInt(value.trim()));
+                    break;
+                case "price":
+                    statement.setDouble(parameter, Double.parseDouble(value.trim()));
+                    break;
+                case "sold":
+                    String sold = value.trim();
+                    statement.setInt(parameter, sold.equals("1") || sold.equalsIgnoreCase("true") ? 1 : 0);
+                    break;
+                default:
+                    statement.setString(parameter, value);
+            }
+        }
+
+        private static boolean isText(String column) {
+            return !column.equals("id") && !column.equals("year") && !column.equals("price") && !column.equals("sold");
+        }
+
+        private void flush() throws SQLException {
+            if (batched > 0) {
+                statement.executeBatch();
+                batched = 0;
+            }
+        }
+
+        void finish() throws SQLException {
+            flush();
+            raw.commit();
+            raw.setAutoCommit(true);
+        }
+
+        void abort(Exception error) {
+            try {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            } catch (SQLException rollbackError) {
+                error.addSuppressed(rollbackError);
+            }
+        }
+    }
+
+    private static int columnIndex(String name) {
+        String column = name.trim().toLowerCase(Locale.ROOT);
+        if (column.equals("transmissiontype")) {
+            column = "transmission";
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Name: RowParser
+     *
+     * Reads one row of values at a time from the file.
+     */
+    private interface RowParser {
+        // The column names for the rows, the same list object until the columns change
+        List<String> getColumns();
+
+        // The row after the last one, or null at the end of the file
+        List<String> next() throws IOException;
+
+        long getLine();
+    }
+
+    /**
+     * Name: CsvParser
+     *
+     * Reads comma separated values. Values can be in double quotes, and a double
+     * quote inside of quotes is written twice. The first line has the column names.
+     */
+    private static class CsvParser implements RowParser {
+        private final Reader reader;
+        private final List<String> row = new ArrayList<>();
+        private final StringBuilder value = new StringBuilder();
+        private List<String> columns;
+        private long line;
+        private int next = -2;
+
+        CsvParser(Reader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRow();
+            if (header == null) {
+                throw new IOException("The CSV file is empty");
+            }
+            columns = new ArrayList<>(header);
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public long getLine() {
+            return line;
+        }
+
+        @Override
+        public List<String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRow();
+            } while (values != null && values.size() == 1 && values.get(0).isEmpty());
+            return values;
+        }
+
+        private int read() throws IOException {
+            if (next != -2) {
+                int c = next;
+                next = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private List<String> readRow() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            line++;
+            row.clear();
+            value.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Line " + line + ": a quoted value is never closed");
+                    }
+                    if (c == '"') {
+                        int after = read();
+                        if (after == '"') {
+                            value.append('"');
+                        } else {
+                            quoted = false;
+                            c = after;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        value.append((char) c);
+                    }
+                } else if (c == '"' && value.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    row.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int after = read();
+                    if (after != '\n') {
+                        next = after;
+                    }
+                    break;
+                } else {
+                    value.append((char) c);
+                }
+                c = read();
+            }
+            row.add(value.toString());
+            return row;
+        }
+    }
+
+    /**
+     * Name: InsertParser
+     *
+     * Reads the rows out of INSERT INTO Cars (...) VALUES (...), (...); statements.
+     * Text values are in single quotes with '' for a quote inside of them, and
+     * lines starting with -- are comments.
+     */
+    private static class InsertParser implements RowParser {
+        private final Reader reader;
+        private final List<String> row = new ArrayList<>();
+        private final StringBuilder token = new StringBuilder();
+        private List<String> columns;
+        private boolean inValues;
+        private long line = 1;
+        private int next = -2;
+
+        InsertParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public long getLine() {
+            return line;
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (next != -2) {
+                c = next;
+                next = -2;
+            } else {
+                c = reader.read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private void unread(int c) {
+            if (c == '\n') {
+                line--;
+            }
+            next = c;
+        }
+
+        // Skips spaces, new lines and -- comments, and gives back the next character
+        private int skipSpace() throws IOException {
+            while (true) {
+                int c = read();
+                if (c == '-') {
+                    int after = read();
+                    if (after == '-') {
+                        while (c != '\n' && c != -1) {
+                            c = read();
+                        }
+                        continue;
+                    }
+                    unread(after);
+                    return c;
+                }
+                if (c == -1 || !Character.isWhitespace(c)) {
+                    return c;
+                }
+            }
+        }
+
+        private String word(int first) throws IOException {
+            token.setLength(0);
+            int c = first;
+            while (c != -1 && (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '"' || c == '`' || c == '[' || c == ']')) {
+                if (c != '"' && c != '`' && c != '[' && c != ']') {
+                    token.append((char) c);
+                }
+                c = read();
+            }
+            unread(c);
+            return token.toString();
+        }
+
+        private void expect(char expected) throws IOException {
+            int c = skipSpace();
+            if (c != expected) {
+                throw new IOException("Line " + line + ": expected '" + expected + "' but found " + describe(c));
+            }
+        }
+
+        private static String describe(int c) {
+            return c == -1 ? "the end of the file" : "'" + (char) c + "'";
+        }
+
+        @Override
+        public List<String> next() throws IOException {
+            while (true) {
+                if (inValues) {
+                    int c = skipSpace();
+                    if (c == ',') {
+                        c = skipSpace();
+                    }
+                    if (c == '(') {
+                        return readTuple();
+                    }
+                    if (c != ';' && c != -1) {
+                        throw new IOException("Line " + line + ": expected ',' or ';' but found " + describe(c));
+                    }
+                    inValues = false;
+                    if (c == -1) {
+                        return null;
+                    }
+                }
+                if (!readInsertHeader()) {
+                    return null;
+                }
+            }
+        }
+
+        // Reads up to VALUES, gives back false at the end of the file
+        private boolean readInsertHeader() throws IOException {
+            int c = skipSpace();
+            if (c == -1) {
+                return false;
+            }
+            String keyword = word(c);
+            if (!keyword.equalsIgnoreCase("INSERT")) {
+                // Anything that is not an INSERT, like CREATE TABLE, is skipped up to its ;
+                while (c != ';' && c != -1) {
+                    c = read();
+                }
+                return c != -1;
+            }
+            String into = word(skipSpace());
+            if (into.equalsIgnoreCase("OR")) {
+                word(skipSpace());
+                into = word(skipSpace());
+            }
+            if (!into.equalsIgnoreCase("INTO")) {
+                throw new IOException("Line " + line + ": expected INTO after INSERT");
+            }
+            String table = word(skipSpace());
+            if (!table.equalsIgnoreCase("Cars")) {
+                throw new IOException("Line " + line + ": can only import into Cars, not " + table);
+            }
+            c = skipSpace();
+            List<String> names = new ArrayList<>();
+            if (c == '(') {
+                do {
+                    names.add(word(skipSpace()));
+                    c = skipSpace();
+                } while (c == ',');
+                if (c != ')') {
+                    throw new IOException("Line " + line + ": expected ')' after the column names");
+                }
+                c = skipSpace();
+            } else {
+                names.addAll(List.of(COLUMNS));
+            }
+            if (!word(c).equalsIgnoreCase("VALUES")) {
+                throw new IOException("Line " + line + ": expected VALUES");
+            }
+            if (!names.equals(columns)) {
+                columns = names;
+            }
+            inValues = true;
+            return true;
+        }
+
+        private List<String> readTuple() throws IOException {
+            row.clear();
+            while (true) {
+                int c = skipSpace();
+                if (c == '\'') {
+                    token.setLength(0);
+                    while (true) {
+                        c = read();
+                        if (c == -1) {
+                            throw new IOException("Line " + line + ": a quoted value is never closed");
+                        }
+                        if (c == '\'') {
+                            int after = read();
+                            if (after != '\'') {
+                                unread(after);
+                                break;
+                            }
+                        }
+                        token.append((char) c);
+                    }
+                    row.add(token.toString());
+                } else {
+                    token.setLength(0);
+                    while (c != ',' && c != ')' && c != -1) {
+                        token.append((char) c);
+                        c = read();
+                    }
+                    unread(c);
+                    String value = token.toString().trim();
+                    row.add(value.equalsIgnoreCase("NULL") ? null : value);
+                }
+                c = skipSpace();
+                if (c == ')') {
+                    return row;
+                }
+                if (c != ',') {
+                    throw new IOException("Line " + line + ": expected ',' or ')' but found " + describe(c));
+                }
+            }
+        }
+    }
+
+    // Counts the bytes that have been read so we can show how much of the file is done
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Name: main
+     *
+     * Imports files into a database without the GUI.
+     *
+     * @param args the database file followed by one or more .csv or .sql files
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CarImporter <database.db> <file.csv|file.sql>...");
+            System.exit(1);
+        }
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + args[0], 1, ConnectionPool.defaultPragmas())) {
+            new CarRepository(pool).migrate();
+            CarImporter importer = new CarImporter(pool);
+            for (int i = 1; i < args.length; i++) {
+                Path file = Path.of(args[i]);
+                System.err.println("Importing " + file);
+                ImportResult result = importer.importFile(file, new ProgressMonitor() {
+                    @Override
+                    public void progress(long done, long total) {
+                    }
+
+                    @Override
+                    public void message(String message) {
+                        System.err.println("  " + message);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return false;
+                    }
+                });
+                System.out.println(file + ": " + result);
+            }
+        }
+    }
+}
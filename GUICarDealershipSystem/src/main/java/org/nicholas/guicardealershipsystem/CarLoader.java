@@ -0,0 +1,260 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarLoader.java
+ * This class reads every car of a table as fast as it can. Asking the ResultSet for a
+ * column by name looks the name up again for every value, so the column numbers are
+ * looked up once. The thread that reads the ResultSet only copies the raw values of a
+ * block of rows into arrays, with the text still as UTF-8 bytes, and hands the block to
+ * the mapper threads, which turn the bytes into shared strings and make the Car objects.
+ * At most two blocks for each mapper are waiting at a time, so a slow mapper makes the
+ * reader wait instead of filling up the memory. The blocks are collected in the order
+ * they were read and each one is handed on as soon as it is done, so the first cars can
+ * be shown while the rest are still being read.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class CarLoader implements AutoCloseable {
+    // One thread is left for the reader, more than four do not help because the reader is slower than them
+    public static final int DEFAULT_MAPPERS = Integer.getInteger("cardealership.load.mappers",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+    // How many rows are read before they are handed to a mapper
+    static final int BLOCK_ROWS = 4096;
+    // The text columns in the order they are kept in a block
+    private static final String[] TEXT_COLUMNS = {"make", "model", "color", "engine", "transmission"};
+
+    private final StringPool strings;
+    private final boolean utf8;
+    private final int mapperCount;
+    private final ExecutorService mappers;
+    private final Deque<Future<List<Car>>> inFlight = new ArrayDeque<>();
+    private final List<Car> cars;
+    private final Consumer<List<Car>> loaded;
+    private final LongAdder mapNanos = new LongAdder();
+    private final long start = System.nanoTime();
+    private long finished;
+
+    /**
+     * Name: Columns
+     *
+     * The numbers of the columns of the ResultSet, looked up once by name.
+     */
+    private static class Columns {
+        private final int id;
+        private final int year;
+        private final int price;
+        private final int sold;
+        private final int version;
+        private final int[] texts = new int[TEXT_COLUMNS.length];
+
+        Columns(ResultSet resultSet) throws SQLException {
+            id = resultSet.findColumn("id");
+            year = resultSet.findColumn("year");
+            price = resultSet.findColumn("price");
+            sold = resultSet.findColumn("sold");
+            version = resultSet.findColumn("version");
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = resultSet.findColumn(TEXT_COLUMNS[i]);
+            }
+        }
+    }
+
+    /**
+     * Name: Block
+     *
+     * The raw values of a block of rows, one array for each column. The text is the
+     * UTF-8 bytes from the database, or the strings when the database is not UTF-8.
+     */
+    private static class Block {
+        private final boolean archived;
+        private final int[] ids = new int[BLOCK_ROWS];
+        private final int[] years = new int[BLOCK_ROWS];
+        private final double[] prices = new double[BLOCK_ROWS];
+        private final boolean[] sold = new boolean[BLOCK_ROWS];
+        private final int[] versions = new int[BLOCK_ROWS];
+        private final Object[] texts = new Object[BLOCK_ROWS * TEXT_COLUMNS.length];
+        private int size;
+
+        Block(boolean archived) {
+            this.archived = archived;
+        }
+    }
+
+    /**
+     * Name: CarLoader
+     *
+     * @param strings      where the text values are shared
+     * @param utf8         true if the text in the database is UTF-8, so the bytes can be read without making strings
+     * @param mapperCount  how many threads make the cars
+     * @param expectedRows how many cars there will probably be, so the list does not have to grow
+     * @param loaded       is given each block of cars in order as soon as it is made, on the reading thread
+     */
+    public CarLoader(StringPool strings, boolean utf8, int mapperCount, int expectedRows, Consumer<List<Car>> loaded) {
+        this.strings = strings;
+        this.utf8 = utf8;
+        this.mapperCount = mapperCount;
+        this.cars = new ArrayList<>(Math.max(expectedRows, 16));
+        this.loaded = loaded;
+        AtomicInteger mapperNumber = new AtomicInteger();
+        this.mappers = Executors.newFixedThreadPool(mapperCount, runnable -> {
+            Thread thread = new Thread(runnable, "car-mapper-" + mapperNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Name: read
+     *
+     * Reads every row of the ResultSet, the cars are added after the ones read before.
+     *
+     * @param resultSet a SELECT of the Cars or CarsArchive columns
+     * @param archived  true if the rows are from the archive
+     * @param monitor   gets told how many cars have been read and is checked for cancel
+     * @param total     how many cars are read in total, for the progress
+     * @throws CancellationException if the monitor was cancelled
+     */
+    public void read(ResultSet resultSet, boolean archived, ProgressMonitor monitor, int total) throws SQLException, InterruptedException {
+        Columns columns = new Columns(resultSet);
+        Block block = new Block(archived);
+        long lastReport = 0;
+        while (resultSet.next()) {
+            int row = block.size++;
+            block.ids[row] = resultSet.getInt(columns.id);
+            block.years[row] = resultSet.getInt(columns.year);
+            block.prices[row] = resultSet.getDouble(columns.price);
+            block.sold[row] = resultSet.getBoolean(columns.sold);
+            block.versions[row] = resultSet.getInt(columns.version);
+            int first = row * TEXT_COLUMNS.length;
+            for (int i = 0; i < TEXT_COLUMNS.length; i++) {
+                block.texts[first + i] = utf8 ? resultSet.getBytes(columns.texts[i]) : resultSet.getString(columns.texts[i]);
+            }
+            if (block.size == BLOCK_ROWS) {
+                if (monitor.isCancelled()) {
+                    throw new CancellationException("Loading cars was cancelled");
+                }
+                submit(block);
+                block = new Block(archived);
+                long now = System.nanoTime();
+                if (now - lastReport > 250_000_000L) {
+                    lastReport = now;
+                    int read = cars.size() + inFlight.size() * BLOCK_ROWS;
+                    monitor.progress(read, total);
+                    monitor.message(String.format("%,d cars read (%,.0f rows/s)", read, read / ((now - start) / 1_000_000_000.0)));
+                }
+            }
+        }
+        if (block.size > 0) {
+            submit(block);
+        }
+    }
+
+    /**
+     * Name: finish
+     *
+     * Waits for the mappers to make the last cars.
+     *
+     * @return every car that was read, in the order they were read
+     */
+    public List<Car> finish() throws InterruptedException {
+        while (!inFlight.isEmpty()) {
+            collectOldest();
+        }
+        finished = System.nanoTime();
+        return cars;
+    }
+
+    // Hands the block to a mapper, waiting for the oldest block first when enough are waiting
+    private void submit(Block block) throws InterruptedException {
+        if (inFlight.size() >= mapperCount * 2) {
+            collectOldest();
+        }
+        inFlight.addLast(mappers.submit(() -> map(block)));
+    }
+
+    private void collectOldest() throws InterruptedException {
+        List<Car> block;
+        try {
+            block = inFlight.removeFirst().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not make the cars that were read", e.getCause());
+        }
+        cars.addAll(block);
+        loaded.accept(block);
+    }
+
+    // Runs on a mapper thread
+    private List<Car> map(Block block) {
+        long mapStart = System.nanoTime();
+        Car[] mapped = new Car[block.size];
+        for (int row = 0; row < block.size; row++) {
+            int first = row * TEXT_COLUMNS.length;
+            Car car = new Car(block.ids[row], block.years[row], text(block.texts[first]), text(block.texts[first + 1]),
+                    text(block.texts[first + 2]), text(block.texts[first + 3]), text(block.texts[first + 4]), block.prices[row]);
+            car.setSold(block.sold[row]);
+            car.setVersion(block.versions[row]);
+            car.setArchived(block.archived);
+            mapped[row] = car;
+        }
+        mapNanos.add(System.nanoTime() - mapStart);
+        return Arrays.asList(mapped);
+    }
+
+    private String text(Object value) {
+        if (value instanceof byte[]) {
+            return strings.get(new String((byte[]) value, StandardCharsets.UTF_8));
+        }
+        return strings.get((String) value);
+    }
+
+    /**
+     * Name: getRowsPerSecond
+     *
+     * @return how many cars were loaded a second from the start until finish, with the reading
+     */
+    public double getRowsPerSecond() {
+        long nanos = (finished == 0 ? System.nanoTime() : finished) - start;
+        return nanos == 0 ? 0 : cars.size() / (nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Name: getMappedRowsPerSecond
+     *
+     * @return how many cars one mapper thread makes a second, without the reading
+     */
+    public double getMappedRowsPerSecond() {
+        long nanos = mapNanos.sum();
+        return nanos == 0 ? 0 : cars.size() / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public void close() {
+        mappers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %,d cars in %,d ms (%,.0f rows/s), mapped at %,.0f rows/s by each of %d mapper threads",
+                cars.size(), ((finished == 0 ? System.nanoTime() : finished) - start) / 1_000_000, getRowsPerSecond(),
+                getMappedRowsPerSecond(), mapperCount);
+    }
+}
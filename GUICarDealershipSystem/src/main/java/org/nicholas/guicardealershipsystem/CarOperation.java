@@ -0,0 +1,184 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarOperation.java
+ * This class is one change or search of the inventory, like adding a car or removing
+ * the cars that match a filter. A list of them is run by CarRepository.applyAll in one
+ * transaction, which is how CarDealershipCli runs batch files without the GUI.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+public class CarOperation {
+    private final Type type;
+    private final Car car;
+    // For REPLACE and DELETE_UNCHANGED, the details the row has to still have
+    private final Car expected;
+    private final int id;
+    private final CarFilter filter;
+    private final double factor;
+
+    /**
+     * Name: Type
+     *
+     * What the operation does.
+     */
+    public enum Type {
+        ADD,
+        UPDATE,
+        SELL,
+        DELETE,
+        DELETE_MATCHING,
+        REPRICE,
+        QUERY,
+        RESTORE,
+        REPLACE,
+        DELETE_UNCHANGED
+    }
+
+    private CarOperation(Type type, Car car, int id, CarFilter filter, double factor) {
+        this(type, car, null, id, filter, factor);
+    }
+
+    private CarOperation(Type type, Car car, Car expected, int id, CarFilter filter, double factor) {
+        this.type = type;
+        this.car = car;
+        this.expected = expected;
+        this.id = id;
+        this.filter = filter;
+        this.factor = factor;
+    }
+
+    /**
+     * Name: add
+     *
+     * @param car the car to add, its id is ignored and picked by the database
+     */
+    public static CarOperation add(Car car) {
+        return new CarOperation(Type.ADD, car, 0, null, 1);
+    }
+
+    /**
+     * Name: update
+     *
+     * @param car the car with the new values, saved to the row with the same id
+     */
+    public static CarOperation update(Car car) {
+        return new CarOperation(Type.UPDATE, car, car.getId(), null, 1);
+    }
+
+    public static CarOperation sell(int id) {
+        return new CarOperation(Type.SELL, null, id, null, 1);
+    }
+
+    public static CarOperation delete(int id) {
+        return new CarOperation(Type.DELETE, null, id, null, 1);
+    }
+
+    /**
+     * Name: deleteMatching
+     *
+     * @param filter what the cars to remove have to match, it must not be empty
+     */
+    public static CarOperation deleteMatching(CarFilter filter) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("Refusing to remove every car with an empty filter");
+        }
+        return new CarOperation(Type.DELETE_MATCHING, null, 0, filter, 1);
+    }
+
+    /**
+     * Name: reprice
+     *
+     * @param filter what the cars to reprice have to match, empty for every car
+     * @param factor what the prices are multiplied by, like 0.95 for 5% off
+     */
+    public static CarOperation reprice(CarFilter filter, double factor) {
+        if (!(factor > 0) || Double.isInfinite(factor)) {
+            throw new IllegalArgumentException("The price factor must be a positive number: " + factor);
+        }
+        return new CarOperation(Type.REPRICE, null, 0, filter, factor);
+    }
+
+    /**
+     * Name: restore
+     *
+     * @param car a removed car to put back with the same id and details, used by undo
+     */
+    public static CarOperation restore(Car car) {
+        return new CarOperation(Type.RESTORE, car, car.getId(), null, 1);
+    }
+
+    /**
+     * Name: replace
+     *
+     * Saves the car only if nobody changed it since, used by undo and redo. The row is
+     * compared with the details instead of a version, because an edit that is saved in
+     * the background is recorded before its version is known.
+     *
+     * @param expected the car as the change being undone or redone left it
+     * @param car      the details to put back, saved to the row with the same id
+     */
+    public static CarOperation replace(Car expected, Car car) {
+        return new CarOperation(Type.REPLACE, car, expected, car.getId(), null, 1);
+    }
+
+    /**
+     * Name: deleteUnchanged
+     *
+     * Removes the car only if it still has the same details, used by redo.
+     *
+     * @param expected the car as it was when it was removed before
+     */
+    public static CarOperation deleteUnchanged(Car expected) {
+        return new CarOperation(Type.DELETE_UNCHANGED, null, expected, expected.getId(), null, 1);
+    }
+
+    public static CarOperation query(CarFilter filter) {
+        return new CarOperation(Type.QUERY, null, 0, filter, 1);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Car getExpected() {
+        return expected;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public CarFilter getFilter() {
+        return filter;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * Name: isBatchable
+     *
+     * @return true if it changes one row by id, so it can be sent together with the ones next to it
+     */
+    boolean isBatchable() {
+        return type == Type.ADD || type == Type.UPDATE || type == Type.SELL || type == Type.DELETE || type == Type.RESTORE
+                || type == Type.REPLACE || type == Type.DELETE_UNCHANGED;
+    }
+
+    /**
+     * Name: isChecked
+     *
+     * @return true if it only changes the row when the row still has the expected details
+     */
+    boolean isChecked() {
+        return expected != null;
+    }
+}
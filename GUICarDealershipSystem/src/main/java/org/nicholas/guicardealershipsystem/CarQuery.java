@@ -0,0 +1,123 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarQuery.java
+ * This class turns a CarFilter into a WHERE clause with ? parameters so the
+ * database can use its indexes to find the matching cars instead of us reading
+ * every car into memory. The text columns use COLLATE NOCASE to match the indexes
+ * that SchemaMigrator creates. Prefix filters use LIKE, which ignores case and can
+ * still use the NOCASE indexes.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CarQuery {
+    private final StringBuilder where = new StringBuilder();
+    private final List<Object> parameters = new ArrayList<>();
+
+    /**
+     * Name: CarQuery
+     *
+     * @param filter the filter to build the WHERE clause from
+     */
+    public CarQuery(CarFilter filter) {
+        if (!filter.getYear().isEmpty()) {
+            int year = filter.getYearValue();
+            if (year < 0) {
+                // The year is not a number so no car can match it
+                add("0 = 1", null);
+            } else if (filter.isPrefix()) {
+                add("CAST(year AS TEXT) LIKE ?", filter.getYear() + "%");
+            } else {
+                add("year = ?", year);
+            }
+        }
+        // The ranges use the index on (year, price)
+        if (filter.getMinYear() != Integer.MIN_VALUE) {
+            add("year >= ?", filter.getMinYear());
+        }
+        if (filter.getMaxYear() != Integer.MAX_VALUE) {
+            add("year <= ?", filter.getMaxYear());
+        }
+        if (filter.getMinPrice() != Double.NEGATIVE_INFINITY) {
+            add("price >= ?", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != Double.POSITIVE_INFINITY) {
+            add("price <= ?", filter.getMaxPrice());
+        }
+        if (!filter.getMake().isEmpty()) {
+            addText("make", filter.getMake(), filter.isPrefix());
+        }
+        if (!filter.getModel().isEmpty()) {
+            addText("model", filter.getModel(), filter.isPrefix());
+        }
+        if (!filter.getColor().isEmpty()) {
+            addText("color", filter.getColor(), filter.isPrefix());
+        }
+    }
+
+    private void addText(String column, String value, boolean prefix) {
+        if (prefix) {
+            add(column + " LIKE ? ESCAPE '\\'", escapeLike(value) + "%");
+        } else {
+            add(column + " = ? COLLATE NOCASE", value);
+        }
+    }
+
+    // Makes % and _ in what the user typed match themselves instead of anything
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private void add(String condition, Object parameter) {
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition);
+        if (parameter != null) {
+            parameters.add(parameter);
+        }
+    }
+
+    /**
+     * Name: getWhereClause
+     *
+     * @return the WHERE clause starting with a space, or an empty string if nothing is filtered
+     */
+    public String getWhereClause() {
+        return where.toString();
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Name: bind
+     *
+     * Sets the parameters of the WHERE clause on the statement.
+     *
+     * @param statement the statement that was prepared with the WHERE clause
+     * @param firstIndex the index of the first ? that belongs to the WHERE clause
+     * @return the index of the next ? after the WHERE clause
+     * @throws SQLException
+     */
+    public int bind(PreparedStatement statement, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for (Object parameter : parameters) {
+            statement.setObject(index++, parameter);
+        }
+        return index;
+    }
+}
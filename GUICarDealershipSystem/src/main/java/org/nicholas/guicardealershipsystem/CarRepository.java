@@ -0,0 +1,1044 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarRepository.java
+ * This class holds all the SQL that reads and changes the Cars table. It only uses
+ * connections from the ConnectionPool and has nothing to do with the GUI, so it is
+ * safe to call from a background thread.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+public class CarRepository {
+    private static final Logger LOG = Logger.getLogger(CarRepository.class.getName());
+    // How many statements are sent to the database at once in a batch
+    private static final int BATCH_SIZE = 500;
+    // Only saves if the version is still the one the car was read with, and counts the version up
+    private static final String UPDATE_SQL = "UPDATE Cars SET year=?, make=?, model=?, color=?, engine=?, transmission=?, price=?, sold=?, version=version+1, updated_at=? WHERE id=? AND version=?";
+    // Saves no matter who changed the car last, for batch files that do not know the version
+    private static final String FORCE_UPDATE_SQL = "UPDATE Cars SET year=?, make=?, model=?, color=?, engine=?, transmission=?, price=?, sold=?, version=version+1, updated_at=? WHERE id=?";
+    // Added to the WHERE of a change that is only made if the row still has the details it is bound to
+    private static final String UNCHANGED_SQL = " AND year IS ? AND make IS ? AND model IS ? AND color IS ? AND engine IS ? AND transmission IS ? AND price IS ? AND sold IS ?";
+    // The id after the highest one ever given out, a trigger moves CarIds up on every insert
+    static final String NEXT_ID_SQL = "(SELECT last_id + 1 FROM CarIds)";
+    private static final String INSERT_SQL = "INSERT INTO Cars (id, year, make, model, color, engine, transmission, price, sold, updated_at) VALUES ("
+            + NEXT_ID_SQL + ", ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Puts a removed car back with its old id, new cars never get a removed id so it is still free
+    private static final String RESTORE_SQL = "INSERT INTO Cars (year, make, model, color, engine, transmission, price, sold, updated_at, id, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Where sold cars are moved once they are old enough, see archiveSold
+    private static final String ARCHIVE = "CarsArchive";
+    private static final String ARCHIVE_COLUMNS = "id, year, make, model, color, engine, transmission, price, sold, version, updated_at, sold_at";
+    // The cars with every searched word in the CarsSearch full text index, a word in the make or model counts for more
+    private static final String SEARCH_SQL = "SELECT Cars.* FROM CarsSearch JOIN Cars ON Cars.id = CarsSearch.rowid WHERE CarsSearch MATCH ? "
+            + "ORDER BY bm25(CarsSearch, 2.0, 2.0, 1.0, 1.0, 0.5) LIMIT ?";
+    // The same without the ranking, so the first cars are read right away instead of after every match is scored
+    private static final String SEARCH_UNRANKED_SQL = "SELECT Cars.* FROM CarsSearch JOIN Cars ON Cars.id = CarsSearch.rowid WHERE CarsSearch MATCH ? LIMIT ?";
+    // Stops counting the matches once there are more than the limit
+    private static final String SEARCH_COUNT_SQL = "SELECT COUNT(*) FROM (SELECT rowid FROM CarsSearch WHERE CarsSearch MATCH ? LIMIT ?)";
+    // How many cars found by a search are handed over at a time
+    private static final int SEARCH_CHUNK = 100;
+    // How many entries of the CarChanges log are kept when it is cleaned up
+    private static final int CHANGE_LOG_KEEP = Integer.getInteger("cardealership.changes.keep", 100_000);
+
+    private final ConnectionPool connectionPool;
+    // The make, model, color, engine and transmission of the cars that are read are shared
+    private final StringPool strings = new StringPool();
+
+    public CarRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Name: migrate
+     *
+     * Makes sure the database has the tables and indexes the program needs.
+     *
+     * @throws SQLException
+     */
+    public void migrate() throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            SchemaMigrator.migrate(connection);
+            // The oldest changes are not needed anymore, a copy of the program that is that far behind reads every car again
+            PreparedStatement prune = connection.prepare("DELETE FROM CarChanges WHERE seq <= (SELECT MAX(seq) FROM CarChanges) - ?");
+            prune.setInt(1, CHANGE_LOG_KEEP);
+            prune.executeUpdate();
+        }
+    }
+
+    /**
+     * Name: count
+     *
+     * @return how many cars are in the database
+     * @throws SQLException
+     */
+    public int count() throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow();
+             ResultSet resultSet = connection.prepare("SELECT COUNT(*) FROM Cars").executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Name: findAll
+     *
+     * Reads every car in the database.
+     *
+     * @param monitor gets told how many cars have been read and is checked for cancel
+     * @return all the cars in the database
+     * @throws SQLException
+     * @throws CancellationException if the monitor was cancelled before all cars were read
+     */
+    public List<Car> findAll(ProgressMonitor monitor) throws SQLException {
+        return findAll(monitor, false);
+    }
+
+    /**
+     * Name: findAll
+     *
+     * @param monitor         gets told how many cars have been read and is checked for cancel
+     * @param includeArchived true to also read the sold cars that were moved to the archive, after the others
+     * @return all the cars in the database
+     * @throws SQLException
+     */
+    public List<Car> findAll(ProgressMonitor monitor, boolean includeArchived) throws SQLException {
+        return findAll(monitor, includeArchived, block -> {
+        });
+    }
+
+    /**
+     * Name: findAll
+     *
+     * Reads every car with a CarLoader, which makes the Car objects on other threads
+     * while this one reads the rows. How fast it went is written to the log.
+     *
+     * @param monitor         gets told how many cars have been read and is checked for cancel
+     * @param includeArchived true to also read the sold cars that were moved to the archive, after the others
+     * @param loaded          is given each block of cars in order as soon as it is made, before this returns
+     * @return all the cars in the database
+     * @throws SQLException
+     * @throws CancellationException if the monitor was cancelled before all cars were read
+     */
+    public List<Car> findAll(ProgressMonitor monitor, boolean includeArchived, Consumer<List<Car>> loaded) throws SQLException {
+        int total = includeArchived ? count() + countArchived() : count();
+        try (PooledConnection connection = connectionPool.borrow();
+             CarLoader loader = new CarLoader(strings, isUtf8(connection), CarLoader.DEFAULT_MAPPERS, total, loaded)) {
+            readAll(connection, "Cars", loader, total, monitor);
+            if (includeArchived) {
+                readAll(connection, ARCHIVE, loader, total, monitor);
+            }
+            List<Car> carList = loader.finish();
+            monitor.progress(carList.size(), carList.size());
+            LOG.info(loader.toString());
+            return carList;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Loading cars was interrupted");
+        }
+    }
+
+    private void readAll(PooledConnection connection, String table, CarLoader loader, int total, ProgressMonitor monitor) throws SQLException, InterruptedException {
+        try (ResultSet resultSet = connection.prepare("SELECT * FROM " + table).executeQuery()) {
+            loader.read(resultSet, table.equals(ARCHIVE), monitor, total);
+        }
+    }
+
+    // The text can only be read as bytes when it is kept as UTF-8, which is what SQLite does unless it was told otherwise
+    private static boolean isUtf8(PooledConnection connection) throws SQLException {
+        try (ResultSet resultSet = connection.prepare("PRAGMA encoding").executeQuery()) {
+            return resultSet.next() && "UTF-8".equalsIgnoreCase(resultSet.getString(1));
+        }
+    }
+
+    /**
+     * Name: countArchived
+     *
+     * @return how many sold cars are in the archive
+     * @throws SQLException
+     */
+    public int countArchived() throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow();
+             ResultSet resultSet = connection.prepare("SELECT COUNT(*) FROM " + ARCHIVE).executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Name: hasMoreThan
+     *
+     * Checks if the table has more than the given number of rows without counting
+     * all of them, so it takes the same time no matter how big the table is.
+     *
+     * @param rows the number of rows to check for
+     * @return true if there are more than that many cars
+     * @throws SQLException
+     */
+    public boolean hasMoreThan(int rows) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT 1 FROM Cars LIMIT 1 OFFSET ?");
+            statement.setInt(1, rows);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Name: findPage
+     *
+     * Reads the next page of cars in id order. Using the last id of the page before
+     * (keyset paging) lets SQLite jump straight to the page with the primary key
+     * instead of skipping over all the rows before it.
+     *
+     * @param afterId the page starts with the first car that has an id bigger than this
+     * @param limit   how many cars are in a page
+     * @return the cars in the page, fewer than limit if it is the last page
+     * @throws SQLException
+     */
+    public List<Car> findPage(int afterId, int limit) throws SQLException {
+        List<Car> page = new ArrayList<>(limit);
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT * FROM Cars WHERE id > ? ORDER BY id LIMIT ?");
+            statement.setInt(1, afterId);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    page.add(mapCar(resultSet));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Name: findIdAfter
+     *
+     * Finds the id of a car that is a number of cars after a known id in id order. This is
+     * only needed when the user jumps to a page without scrolling through the pages before
+     * it. SQLite starts at the known id with the primary key and only steps over the cars
+     * in between, so it is as fast as the jump is short.
+     *
+     * @param afterId the id to start after, Integer.MIN_VALUE for the first car
+     * @param skip    how many cars to step over, 0 for the first car after afterId
+     * @return the id of that car, or Integer.MAX_VALUE if there are not that many cars
+     * @throws SQLException
+     */
+    public int findIdAfter(int afterId, int skip) throws SQLException {
+        return findIdFrom("SELECT id FROM Cars WHERE id > ? ORDER BY id LIMIT 1 OFFSET ?", afterId, skip);
+    }
+
+    /**
+     * Name: findIdBefore
+     *
+     * The same as findIdAfter but going back from a known id, for a jump to a page just
+     * before one that is known.
+     *
+     * @param atOrBeforeId the id to start at, it is the car with skip 0
+     * @param skip         how many cars to step back over
+     * @return the id of that car, or Integer.MIN_VALUE if there are not that many cars
+     * @throws SQLException
+     */
+    public int findIdBefore(int atOrBeforeId, int skip) throws SQLException {
+        int id = findIdFrom("SELECT id FROM Cars WHERE id <= ? ORDER BY id DESC LIMIT 1 OFFSET ?", atOrBeforeId, skip);
+        return id == Integer.MAX_VALUE ? Integer.MIN_VALUE : id;
+    }
+
+    private int findIdFrom(String sql, int fromId, int skip) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare(sql);
+            statement.setInt(1, fromId);
+            statement.setInt(2, skip);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : Integer.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Name: findMatching
+     *
+     * Lets the database find the cars that match the filter using its indexes.
+     *
+     * @param filter what the cars have to match
+     * @return the matching cars
+     * @throws SQLException
+     */
+    public List<Car> findMatching(CarFilter filter) throws SQLException {
+        return findMatching(filter, -1);
+    }
+
+    /**
+     * Name: findMatching
+     *
+     * @param filter what the cars have to match
+     * @param limit  the most cars to read in id order, or -1 for all of them
+     * @return the matching cars
+     * @throws SQLException
+     */
+    public List<Car> findMatching(CarFilter filter, int limit) throws SQLException {
+        return findMatching(filter, limit, false);
+    }
+
+    /**
+     * Name: findMatching
+     *
+     * @param filter          what the cars have to match
+     * @param limit           the most cars to read, or -1 for all of them
+     * @param includeArchived true to also look in the archive once the cars in stock are read
+     * @return the matching cars
+     * @throws SQLException
+     */
+    public List<Car> findMatching(CarFilter filter, int limit, boolean includeArchived) throws SQLException {
+        CarQuery query = new CarQuery(filter);
+        List<Car> carList = new ArrayList<>();
+        try (PooledConnection connection = connectionPool.borrow()) {
+            findMatching(connection, "Cars", query, limit, carList);
+            if (includeArchived && (limit < 0 || carList.size() < limit)) {
+                findMatching(connection, ARCHIVE, query, limit < 0 ? -1 : limit - carList.size(), carList);
+            }
+        }
+        return carList;
+    }
+
+    private void findMatching(PooledConnection connection, String table, CarQuery query, int limit, List<Car> carList) throws SQLException {
+        PreparedStatement statement = connection.prepare("SELECT * FROM " + table + query.getWhereClause() + " ORDER BY id LIMIT ?");
+        statement.setInt(query.bind(statement, 1), limit);
+        boolean archived = table.equals(ARCHIVE);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                carList.add(mapCar(resultSet, archived));
+            }
+        }
+    }
+
+    /**
+     * Name: search
+     *
+     * Finds the cars in stock with a word that starts with each of the words that were
+     * typed, in any of their text values, using the CarsSearch full text index. The best
+     * matches come first, unless more cars match than the limit: ranking them would mean
+     * scoring every match before the first one is read, so then they come in id order.
+     * The cars are handed over a chunk at a time as they are read, so the first ones can
+     * be shown before the last ones are read.
+     *
+     * @param text    what was typed in the search box
+     * @param limit   the most cars to read
+     * @param monitor is checked for cancel between chunks
+     * @param found   is given each chunk of cars, on the thread that runs the search
+     * @return how many cars were found
+     * @throws SQLException
+     */
+    public int search(String text, int limit, ProgressMonitor monitor, Consumer<List<Car>> found) throws SQLException {
+        String match = toMatchQuery(text);
+        if (match.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        List<Car> chunk = new ArrayList<>(SEARCH_CHUNK);
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement counter = connection.prepare(SEARCH_COUNT_SQL);
+            counter.setString(1, match);
+            counter.setInt(2, limit + 1);
+            boolean ranked;
+            try (ResultSet resultSet = counter.executeQuery()) {
+                ranked = resultSet.next() && resultSet.getInt(1) <= limit;
+            }
+            PreparedStatement statement = connection.prepare(ranked ? SEARCH_SQL : SEARCH_UNRANKED_SQL);
+            statement.setString(1, match);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    chunk.add(mapCar(resultSet));
+                    count++;
+                    if (chunk.size() == SEARCH_CHUNK) {
+                        if (monitor.isCancelled()) {
+                            throw new CancellationException("The search was cancelled");
+                        }
+                        found.accept(chunk);
+                        chunk = new ArrayList<>(SEARCH_CHUNK);
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            found.accept(chunk);
+        }
+        return count;
+    }
+
+    /**
+     * Name: toMatchQuery
+     *
+     * Turns what was typed into an FTS5 query where every word has to be the start of a
+     * word, so "silv s15" becomes "silv"* "s15"*. Only letters and digits are kept, so
+     * nothing that was typed can change the meaning of the query.
+     *
+     * @return the query, or an empty string if nothing that can be searched for was typed
+     */
+    static String toMatchQuery(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : NGramIndex.words(text)) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word).append("\"*");
+        }
+        return match.toString();
+    }
+
+    /**
+     * Name: deleteMatchingCars
+     *
+     * Removes every car that matches the filter in one transaction. The whole rows are
+     * read first so the caller knows which cars were removed and undo can put them back,
+     * then one DELETE with the same WHERE clause removes them.
+     *
+     * @param filter what the cars have to match, it must not be empty
+     * @return the cars that were removed
+     * @throws SQLException
+     */
+    public List<Car> deleteMatchingCars(CarFilter filter) throws SQLException {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("Refusing to remove every car with an empty filter");
+        }
+        CarQuery query = new CarQuery(filter);
+        List<Car> cars = new ArrayList<>();
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.inTransaction(() -> {
+                PreparedStatement select = connection.prepare("SELECT * FROM Cars" + query.getWhereClause());
+                query.bind(select, 1);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        cars.add(mapCar(resultSet));
+                    }
+                }
+                if (!cars.isEmpty()) {
+                    PreparedStatement delete = connection.prepare("DELETE FROM Cars" + query.getWhereClause());
+                    query.bind(delete, 1);
+                    delete.executeUpdate();
+                }
+                return null;
+            });
+        }
+        return cars;
+    }
+
+    /**
+     * Name: insert
+     *
+     * Adds a new car to the database. The id of the car is ignored and
+     * the database picks the id, which is given back by RETURNING so the
+     * new car does not have to be read again.
+     *
+     * @param car the car to add
+     * @return the id the database gave the car
+     * @throws SQLException
+     */
+    public int insert(Car car) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare(INSERT_SQL + " RETURNING id");
+            statement.setInt(1, car.getYear());
+            statement.setString(2, car.getMake());
+            statement.setString(3, car.getModel());
+            statement.setString(4, car.getColor());
+            statement.setString(5, car.getEngine());
+            statement.setString(6, car.getTransmissionType());
+            statement.setDouble(7, car.getPrice());
+            statement.setBoolean(8, car.isSold());
+            statement.setLong(9, System.currentTimeMillis());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("The database did not give back an id for the new car");
+                }
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Name: update
+     *
+     * Saves all the fields of the car to the row with the same id, if nobody else
+     * saved the car since it was read. The version of the car goes up by one.
+     *
+     * @param car the car with the new values
+     * @throws CarConflictException if someone else saved or removed the car first
+     * @throws SQLException
+     */
+    public void update(Car car) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare(UPDATE_SQL);
+            bindUpdate(statement, car, true);
+            if (statement.executeUpdate() == 0) {
+                List<Integer> ids = List.of(car.getId());
+                throw new CarConflictException(ids, findByIds(connection, ids));
+            }
+        }
+        car.setVersion(car.getVersion() + 1);
+    }
+
+    /**
+     * Name: updateAll
+     *
+     * Saves all the cars in one transaction using one statement and batches, so
+     * there is only one commit. If anything fails none of the cars are saved. Cars
+     * that someone else saved first are skipped, the others are still saved, and
+     * then a CarConflictException says which ones were skipped.
+     *
+     * @param cars the cars to save with their new details
+     * @return how many rows were updated
+     * @throws CarConflictException if some of the cars were changed by someone else
+     * @throws SQLException
+     */
+    public int updateAll(Collection<Car> cars) throws SQLException {
+        List<Car> saved = new ArrayList<>(cars.size());
+        List<Integer> conflicts = new ArrayList<>();
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.inTransaction(() -> {
+                PreparedStatement statement = connection.prepare(UPDATE_SQL);
+                List<Car> batch = new ArrayList<>(BATCH_SIZE);
+                for (Car car : cars) {
+                    bindUpdate(statement, car, true);
+                    statement.addBatch();
+                    batch.add(car);
+                    if (batch.size() == BATCH_SIZE) {
+                        executeChecked(statement, batch, saved, conflicts);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    executeChecked(statement, batch, saved, conflicts);
+                }
+                return null;
+            });
+            // Only counted up once the commit worked
+            for (Car car : saved) {
+                car.setVersion(car.getVersion() + 1);
+            }
+            if (!conflicts.isEmpty()) {
+                throw new CarConflictException(conflicts, findByIds(connection, conflicts));
+            }
+        }
+        return saved.size();
+    }
+
+    // Sends the batch, a row count of 0 means the version did not match anymore
+    private static void executeChecked(PreparedStatement statement, List<Car> batch, List<Car> saved, List<Integer> conflicts) throws SQLException {
+        int[] counts = statement.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicts.add(batch.get(i).getId());
+            } else {
+                saved.add(batch.get(i));
+            }
+        }
+        batch.clear();
+    }
+
+    private static void bindUpdate(PreparedStatement statement, Car car, boolean checkVersion) throws SQLException {
+        statement.setInt(1, car.getYear());
+        statement.setString(2, car.getMake());
+        statement.setString(3, car.getModel());
+        statement.setString(4, car.getColor());
+        statement.setString(5, car.getEngine());
+        statement.setString(6, car.getTransmissionType());
+        statement.setDouble(7, car.getPrice());
+        statement.setBoolean(8, car.isSold());
+        statement.setLong(9, System.currentTimeMillis());
+        statement.setInt(10, car.getId());
+        if (checkVersion) {
+            statement.setInt(11, car.getVersion());
+        }
+    }
+
+    /**
+     * Name: delete
+     *
+     * @param id the id of the car to remove from the database
+     * @throws SQLException
+     */
+    public void delete(int id) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("DELETE FROM Cars WHERE id = ?");
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Name: delete
+     *
+     * Removes the car if nobody else saved it since it was read. A car that
+     * someone else already removed is not an error, it is gone either way.
+     *
+     * @param car the car to remove from the database
+     * @throws CarConflictException if someone else saved the car first
+     * @throws SQLException
+     */
+    public void delete(Car car) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("DELETE FROM Cars WHERE id = ? AND version = ?");
+            statement.setInt(1, car.getId());
+            statement.setInt(2, car.getVersion());
+            if (statement.executeUpdate() == 0) {
+                List<Integer> ids = List.of(car.getId());
+                List<Car> current = findByIds(connection, ids);
+                if (!current.isEmpty()) {
+                    throw new CarConflictException(ids, current);
+                }
+            }
+        }
+    }
+
+    /**
+     * Name: findByIds
+     *
+     * @param ids the ids of the cars to read
+     * @return the cars with those ids that are in the database
+     * @throws SQLException
+     */
+    public List<Car> findByIds(Collection<Integer> ids) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return findByIds(connection, ids);
+        }
+    }
+
+    private List<Car> findByIds(PooledConnection connection, Collection<Integer> ids) throws SQLException {
+        return findByIds(connection, "Cars", ids);
+    }
+
+    private List<Car> findByIds(PooledConnection connection, String table, Collection<Integer> ids) throws SQLException {
+        List<Car> found = new ArrayList<>(ids.size());
+        List<Integer> chunk = new ArrayList<>(BATCH_SIZE);
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == BATCH_SIZE) {
+                findChunk(connection, table, chunk, found);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            findChunk(connection, table, chunk, found);
+        }
+        return found;
+    }
+
+    private void findChunk(PooledConnection connection, String table, List<Integer> chunk, List<Car> found) throws SQLException {
+        boolean archived = table.equals(ARCHIVE);
+        StringBuilder sql = new StringBuilder("SELECT * FROM " + table + " WHERE id IN (?");
+        for (int i = 1; i < chunk.size(); i++) {
+            sql.append(", ?");
+        }
+        PreparedStatement statement = connection.prepare(sql.append(')').toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            statement.setInt(i + 1, chunk.get(i));
+        }
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                found.add(mapCar(resultSet, archived));
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Name: latestChange
+     *
+     * @return the newest entry of the CarChanges log, or 0 if nothing was logged yet
+     * @throws SQLException
+     */
+    public long latestChange() throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return latestChange(connection);
+        }
+    }
+
+    // AUTOINCREMENT keeps the last seq in sqlite_sequence even after the log was cleaned up
+    private static long latestChange(PooledConnection connection) throws SQLException {
+        try (ResultSet resultSet = connection.prepare("SELECT seq FROM sqlite_sequence WHERE name = 'CarChanges'").executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Name: findChanges
+     *
+     * Reads what changed after an entry of the CarChanges log, from this or any other
+     * copy of the program. The log and the cars are read in one transaction so they
+     * agree with each other.
+     *
+     * @param afterSeq the last entry that was already seen
+     * @param limit    the most log entries to read at once
+     * @return the changed cars as they are now and the ids of the removed ones
+     * @throws SQLException
+     */
+    public CarChanges findChanges(long afterSeq, int limit) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return connection.inTransaction(() -> {
+                long latest = latestChange(connection);
+                long oldest;
+                try (ResultSet resultSet = connection.prepare("SELECT MIN(seq) FROM CarChanges").executeQuery()) {
+                    oldest = resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+                // Entries after afterSeq were already cleaned up, so some changes can not be known
+                boolean cleanedUp = oldest == 0 ? latest > afterSeq : oldest > afterSeq + 1;
+                if (cleanedUp) {
+                    return new CarChanges(latest, List.of(), Set.of(), List.of(), false);
+                }
+                Set<Integer> ids = new LinkedHashSet<>();
+                long lastSeq = afterSeq;
+                PreparedStatement statement = connection.prepare("SELECT seq, car_id FROM CarChanges WHERE seq > ? ORDER BY seq LIMIT ?");
+                statement.setLong(1, afterSeq);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastSeq = resultSet.getLong(1);
+                        ids.add(resultSet.getInt(2));
+                    }
+                }
+                List<Car> changed = findByIds(connection, ids);
+                Set<Integer> removed = new HashSet<>(ids);
+                for (Car car : changed) {
+                    removed.remove(car.getId());
+                }
+                // A removed car might have been moved to the archive instead of deleted
+                List<Car> archived = removed.isEmpty() ? List.of() : findByIds(connection, ARCHIVE, removed);
+                for (Car car : archived) {
+                    removed.remove(car.getId());
+                }
+                return new CarChanges(lastSeq, changed, removed, archived, true);
+            });
+        }
+    }
+
+    /**
+     * Name: archiveSold
+     *
+     * Moves up to limit sold cars that were sold before the given time from Cars to
+     * CarsArchive, in one transaction. New cars get ids above the archived ones, so
+     * an id is never used again.
+     *
+     * @param soldBefore the time in milliseconds the cars have to be sold before
+     * @param limit      the most cars to move
+     * @return how many cars were moved, less than the limit when there are no more to move
+     * @throws SQLException
+     */
+    public int archiveSold(long soldBefore, int limit) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return connection.inTransaction(() -> {
+                PreparedStatement last = connection.prepare("SELECT MAX(id) FROM (SELECT id FROM Cars WHERE sold = 1 AND sold_at < ? ORDER BY id LIMIT ?)");
+                last.setLong(1, soldBefore);
+                last.setInt(2, limit);
+                int lastId;
+                try (ResultSet resultSet = last.executeQuery()) {
+                    lastId = resultSet.next() ? resultSet.getInt(1) : 0;
+                    if (resultSet.wasNull()) {
+                        return 0;
+                    }
+                }
+                PreparedStatement copy = connection.prepare("INSERT INTO " + ARCHIVE + " (" + ARCHIVE_COLUMNS + ", archived_at) SELECT "
+                        + ARCHIVE_COLUMNS + ", ? FROM Cars WHERE sold = 1 AND sold_at < ? AND id <= ?");
+                copy.setLong(1, System.currentTimeMillis());
+                copy.setLong(2, soldBefore);
+                copy.setInt(3, lastId);
+                copy.executeUpdate();
+                PreparedStatement delete = connection.prepare("DELETE FROM Cars WHERE sold = 1 AND sold_at < ? AND id <= ?");
+                delete.setLong(1, soldBefore);
+                delete.setInt(2, lastId);
+                return delete.executeUpdate();
+            });
+        }
+    }
+
+    /**
+     * Name: deleteAll
+     *
+     * Removes all the cars in one transaction using one statement and batches
+     * of ids, so there is only one commit. If anything fails none of the cars
+     * are removed. Like updateAll, cars that someone else saved since they were
+     * read are skipped, the others are still removed, and then a
+     * CarConflictException says which ones were skipped. A car that someone
+     * else already removed is not a conflict.
+     *
+     * @param cars the cars to remove from the database
+     * @return how many rows were removed
+     * @throws CarConflictException if some of the cars were changed by someone else
+     * @throws SQLException
+     */
+    public int deleteAll(List<Car> cars) throws SQLException {
+        List<Car> removed = new ArrayList<>(cars.size());
+        List<Integer> missed = new ArrayList<>();
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.inTransaction(() -> {
+                PreparedStatement statement = connection.prepare("DELETE FROM Cars WHERE id = ? AND version = ?");
+                List<Car> batch = new ArrayList<>(BATCH_SIZE);
+                for (Car car : cars) {
+                    statement.setInt(1, car.getId());
+                    statement.setInt(2, car.getVersion());
+                    statement.addBatch();
+                    batch.add(car);
+                    if (batch.size() == BATCH_SIZE) {
+                        executeChecked(statement, batch, removed, missed);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    executeChecked(statement, batch, removed, missed);
+                }
+                return null;
+            });
+            if (!missed.isEmpty()) {
+                // Only the cars that are still there were changed, the others are gone either way
+                List<Car> current = findByIds(connection, missed);
+                if (!current.isEmpty()) {
+                    List<Integer> conflicts = new ArrayList<>(current.size());
+                    for (Car car : current) {
+                        conflicts.add(car.getId());
+                    }
+                    throw new CarConflictException(conflicts, current);
+                }
+            }
+        }
+        return removed.size();
+    }
+
+    /**
+     * Name: applyAll
+     *
+     * Runs the operations in order in one transaction. Operations next to each other
+     * that change one row by id, like a run of adds, are sent to the database together
+     * in batches. If anything fails none of the operations are saved.
+     *
+     * @param operations the operations to run
+     * @param found      is given every car that a QUERY operation finds
+     * @return how many rows were added, changed or removed
+     * @throws CarConflictException if a REPLACE or DELETE_UNCHANGED car was changed by someone else, nothing is saved then
+     * @throws SQLException
+     */
+    public int applyAll(List<CarOperation> operations, Consumer<Car> found) throws SQLException {
+        return applyAll(operations, found, () -> {
+        });
+    }
+
+    /**
+     * Name: applyAll
+     *
+     * @param beforeCommit is run last inside the transaction, if it throws nothing is saved
+     */
+    public int applyAll(List<CarOperation> operations, Consumer<Car> found, Runnable beforeCommit) throws SQLException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return connection.inTransaction(() -> {
+                int changed = 0;
+                PreparedStatement batch = null;
+                List<CarOperation> batched = new ArrayList<>();
+                List<CarOperation> missed = new ArrayList<>();
+                for (CarOperation operation : operations) {
+                    // The batch so far is sent before an operation of another kind so the order is kept
+                    if (batch != null && (operation.getType() != batched.get(0).getType() || batched.size() == BATCH_SIZE)) {
+                        changed += executeOperations(batch, batched, missed);
+                        batch = null;
+                    }
+                    if (!operation.isBatchable()) {
+                        changed += applyFiltered(connection, operation, found);
+                        continue;
+                    }
+                    if (batch == null) {
+                        batch = connection.prepare(batchSql(operation.getType()));
+                    }
+                    bindOperation(batch, operation);
+                    batch.addBatch();
+                    batched.add(operation);
+                }
+                if (batch != null) {
+                    changed += executeOperations(batch, batched, missed);
+                }
+                if (!missed.isEmpty()) {
+                    checkMissed(connection, missed);
+                }
+                beforeCommit.run();
+                return changed;
+            });
+        }
+    }
+
+    // Sends the batch, a checked operation that changed no row goes in missed
+    private static int executeOperations(PreparedStatement statement, List<CarOperation> batch, List<CarOperation> missed) throws SQLException {
+        int[] counts = statement.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 && batch.get(i).isChecked()) {
+                missed.add(batch.get(i));
+            }
+        }
+        batch.clear();
+        return sum(counts);
+    }
+
+    // A car that was changed is a conflict, and so is one that was removed unless it was being removed anyway
+    private void checkMissed(PooledConnection connection, List<CarOperation> missed) throws SQLException {
+        List<Integer> ids = new ArrayList<>(missed.size());
+        for (CarOperation operation : missed) {
+            ids.add(operation.getId());
+        }
+        List<Car> current = findByIds(connection, ids);
+        Set<Integer> existing = new HashSet<>();
+        for (Car car : current) {
+            existing.add(car.getId());
+        }
+        List<Integer> conflicts = new ArrayList<>();
+        for (CarOperation operation : missed) {
+            if (operation.getType() == CarOperation.Type.REPLACE || existing.contains(operation.getId())) {
+                conflicts.add(operation.getId());
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new CarConflictException(conflicts, current);
+        }
+    }
+
+    private static String batchSql(CarOperation.Type type) {
+        switch (type) {
+            case ADD:
+                return INSERT_SQL;
+            case RESTORE:
+                return RESTORE_SQL;
+            case UPDATE:
+                return FORCE_UPDATE_SQL;
+            case REPLACE:
+                return FORCE_UPDATE_SQL + UNCHANGED_SQL;
+            case SELL:
+                return "UPDATE Cars SET sold = 1, version = version + 1, updated_at = ? WHERE id = ?";
+            case DELETE_UNCHANGED:
+                return "DELETE FROM Cars WHERE id = ?" + UNCHANGED_SQL;
+            default:
+                return "DELETE FROM Cars WHERE id = ?";
+        }
+    }
+
+    private static void bindOperation(PreparedStatement statement, CarOperation operation) throws SQLException {
+        Car car = operation.getCar();
+        switch (operation.getType()) {
+            case ADD:
+            case RESTORE:
+                // The same columns as an update without the id at the end
+                statement.setInt(1, car.getYear());
+                statement.setString(2, car.getMake());
+                statement.setString(3, car.getModel());
+                statement.setString(4, car.getColor());
+                statement.setString(5, car.getEngine());
+                statement.setString(6, car.getTransmissionType());
+                statement.setDouble(7, car.getPrice());
+                statement.setBoolean(8, car.isSold());
+                statement.setLong(9, System.currentTimeMillis());
+                if (operation.getType() == CarOperation.Type.RESTORE) {
+                    statement.setInt(10, car.getId());
+                    statement.setInt(11, car.getVersion());
+                }
+                break;
+            case UPDATE:
+                bindUpdate(statement, car, false);
+                break;
+            case REPLACE:
+                bindUpdate(statement, car, false);
+                bindUnchanged(statement, 11, operation.getExpected());
+                break;
+            case DELETE_UNCHANGED:
+                statement.setInt(1, operation.getId());
+                bindUnchanged(statement, 2, operation.getExpected());
+                break;
+            case SELL:
+                statement.setLong(1, System.currentTimeMillis());
+                statement.setInt(2, operation.getId());
+                break;
+            default:
+                statement.setInt(1, operation.getId());
+        }
+    }
+
+    private static void bindUnchanged(PreparedStatement statement, int first, Car car) throws SQLException {
+        statement.setInt(first, car.getYear());
+        statement.setString(first + 1, car.getMake());
+        statement.setString(first + 2, car.getModel());
+        statement.setString(first + 3, car.getColor());
+        statement.setString(first + 4, car.getEngine());
+        statement.setString(first + 5, car.getTransmissionType());
+        statement.setDouble(first + 6, car.getPrice());
+        statement.setBoolean(first + 7, car.isSold());
+    }
+
+    // Runs an operation that uses a filter, these can not be batched
+    private int applyFiltered(PooledConnection connection, CarOperation operation, Consumer<Car> found) throws SQLException {
+        CarQuery query = new CarQuery(operation.getFilter());
+        switch (operation.getType()) {
+            case DELETE_MATCHING: {
+                PreparedStatement statement = connection.prepare("DELETE FROM Cars" + query.getWhereClause());
+                query.bind(statement, 1);
+                return statement.executeUpdate();
+            }
+            case REPRICE: {
+                PreparedStatement statement = connection.prepare("UPDATE Cars SET price = ROUND(price * ?, 2), version = version + 1, updated_at = ?" + query.getWhereClause());
+                statement.setDouble(1, operation.getFactor());
+                statement.setLong(2, System.currentTimeMillis());
+                query.bind(statement, 3);
+                return statement.executeUpdate();
+            }
+            default: {
+                PreparedStatement statement = connection.prepare("SELECT * FROM Cars" + query.getWhereClause() + " ORDER BY id");
+                query.bind(statement, 1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        found.accept(mapCar(resultSet));
+                    }
+                }
+                return 0;
+            }
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // Some drivers only say that the row worked without saying how many
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+
+    private Car mapCar(ResultSet resultSet, boolean archived) throws SQLException {
+        Car car = mapCar(resultSet);
+        car.setArchived(archived);
+        return car;
+    }
+
+    // Getting the car that is in the current row and putting the values in the category
+    Car mapCar(ResultSet resultSet) throws SQLException {
+        int id = resultSet.getInt("id");
+        int year = resultSet.getInt("year");
+        String make = strings.get(resultSet.getString("make"));
+        String model = strings.get(resultSet.getString("model"));
+        String color = strings.get(resultSet.getString("color"));
+        String engine = strings.get(resultSet.getString("engine"));
+        String transmission = strings.get(resultSet.getString("transmission"));
+        double price = resultSet.getDouble("price");
+        boolean sold = resultSet.getBoolean("sold");
+
+        Car car = new Car(id, year, make, model, color, engine, transmission, price);
+        car.setSold(sold);
+        car.setVersion(resultSet.getInt("version"));
+        return car;
+    }
+}
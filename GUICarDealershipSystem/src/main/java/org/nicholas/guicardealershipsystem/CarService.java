@@ -0,0 +1,264 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * CarService.java
+ * This class runs the CarRepository work on background threads so that the
+ * GUI never freezes while the database is busy. Every method gives back a JavaFX
+ * Task, so the controller can listen for when it succeeds or fails (those
+ * handlers are run on the JavaFX thread), watch its progress, or cancel it.
+ * How long each piece of work takes is recorded in the Metrics.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import javafx.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class CarService implements AutoCloseable {
+    private final CarRepository repository;
+    // Reads can run at the same time, but SQLite only allows one writer so writes go in order
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+    // Reads wait for this so they never see the tables before the new columns are added
+    private volatile Task<Void> migration;
+
+    /**
+     * Name: SqlWork
+     *
+     * A piece of database work that can throw an exception and report progress.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(ProgressMonitor monitor) throws Exception;
+    }
+
+    public CarService(CarRepository repository) {
+        this.repository = repository;
+        this.readExecutor = newReadExecutor();
+        this.writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "car-db-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Name: newReadExecutor
+     *
+     * Uses virtual threads when the Java version has them, or a small pool of
+     * daemon threads the same size as the connection pool when it does not.
+     */
+    private static ExecutorService newReadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(4, runnable -> {
+                Thread thread = new Thread(runnable, "car-db-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CarRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Name: loadCars
+     *
+     * @param listener        is given the cars in the background before the task finishes
+     * @param includeArchived true to also read the sold cars that were moved to the archive
+     * @param loaded          is given each block of cars in the background as soon as it is read
+     * @return a running task that reads all the cars, it can be cancelled
+     */
+    public Task<List<Car>> loadCars(InventoryListener listener, boolean includeArchived, Consumer<List<Car>> loaded) {
+        return read(Metrics.Operation.LOAD, monitor -> {
+            List<Car> cars = repository.findAll(monitor, includeArchived, loaded);
+            monitor.message(String.format("Indexing %,d cars", cars.size()));
+            listener.carsLoaded(cars);
+            return cars;
+        });
+    }
+
+    /**
+     * Name: migrate
+     *
+     * Updates the tables, the reads that are started after this wait until it is done.
+     */
+    public Task<Void> migrate() {
+        Task<Void> task = write(monitor -> {
+            repository.migrate();
+            return null;
+        });
+        migration = task;
+        return task;
+    }
+
+    public Task<List<Car>> findMatching(CarFilter filter, int limit, boolean includeArchived) {
+        return read(Metrics.Operation.QUERY, monitor -> repository.findMatching(filter, limit, includeArchived));
+    }
+
+    /**
+     * Name: search
+     *
+     * @param text  what was typed in the search box
+     * @param limit the most cars to find
+     * @param found is given the cars a chunk at a time in the background as they are read
+     * @return a running task that gives back how many cars were found, it can be cancelled
+     */
+    public Task<Integer> search(String text, int limit, Consumer<List<Car>> found) {
+        return read(Metrics.Operation.SEARCH, monitor -> repository.search(text, limit, monitor, found));
+    }
+
+    /**
+     * Name: insert
+     *
+     * @return a running task that gives back the saved car with the id from the database
+     */
+    public Task<Car> insert(Car car) {
+        return write(Metrics.Operation.ADD, monitor -> car.withId(repository.insert(car)));
+    }
+
+    public Task<Void> update(Car car) {
+        return write(Metrics.Operation.EDIT, monitor -> {
+            repository.update(car);
+            return null;
+        });
+    }
+
+    public Task<Void> delete(Car car) {
+        return write(Metrics.Operation.DELETE, monitor -> {
+            repository.delete(car);
+            return null;
+        });
+    }
+
+    /**
+     * Name: read
+     *
+     * Starts work that only reads from the database.
+     */
+    public <T> Task<T> read(SqlWork<T> work) {
+        return read(Metrics.Operation.QUERY, work);
+    }
+
+    /**
+     * Name: read
+     *
+     * @param operation what the work is recorded as in the metrics
+     */
+    public <T> Task<T> read(Metrics.Operation operation, SqlWork<T> work) {
+        Task<Void> pending = migration;
+        if (pending == null || pending.isDone()) {
+            return submit(readExecutor, operation, work);
+        }
+        return submit(readExecutor, operation, monitor -> {
+            awaitMigration(pending);
+            return work.run(monitor);
+        });
+    }
+
+    // A failed migration was already reported, the read goes ahead and fails by itself if it has to
+    private static void awaitMigration(Task<Void> pending) throws InterruptedException {
+        try {
+            pending.get();
+        } catch (ExecutionException | CancellationException e) {
+            // nothing to wait for anymore
+        }
+    }
+
+    /**
+     * Name: write
+     *
+     * Starts work that changes the database. Writes are run one at a time in the
+     * order they were started.
+     */
+    public <T> Task<T> write(SqlWork<T> work) {
+        return write(Metrics.Operation.WRITE, work);
+    }
+
+    /**
+     * Name: write
+     *
+     * @param operation what the work is recorded as in the metrics
+     */
+    public <T> Task<T> write(Metrics.Operation operation, SqlWork<T> work) {
+        return submit(writeExecutor, operation, work);
+    }
+
+    /**
+     * Name: writeLater
+     *
+     * Runs work on the writer thread without a Task, in order with the other writes.
+     * It is for work that reports back by itself, like the write-behind queue.
+     */
+    void writeLater(Runnable work) {
+        writeExecutor.execute(work);
+    }
+
+    private static <T> Task<T> submit(ExecutorService executor, Metrics.Operation operation, SqlWork<T> work) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                long start = Metrics.start();
+                try {
+                    T result = runWork();
+                    Metrics.stop(operation, start, Metrics.rowsOf(result));
+                    return result;
+                } catch (Exception e) {
+                    Metrics.failed(operation, start);
+                    throw e;
+                }
+            }
+
+            private T runWork() throws Exception {
+                Task<T> thisTask = this;
+                return work.run(new ProgressMonitor() {
+                    @Override
+                    public void progress(long done, long total) {
+                        updateProgress(done, total);
+                    }
+
+                    @Override
+                    public void message(String message) {
+                        updateMessage(message);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return thisTask.isCancelled();
+                    }
+                });
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Name: close
+     *
+     * Lets the writes that were already started finish, then stops the threads.
+     */
+    @Override
+    public void close() {
+        readExecutor.shutdownNow();
+        writeExecutor.shutdown();
+        try {
+            writeExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
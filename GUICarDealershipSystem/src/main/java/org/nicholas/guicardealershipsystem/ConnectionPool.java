@@ -0,0 +1,273 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * ConnectionPool.java
+ * This class keeps a small number of SQLite connections open for the whole time
+ * the database is in use so that every click does not have to open a new connection
+ * and re-read the schema. Each connection gets the configured pragmas applied once
+ * when it is opened and keeps its own cache of prepared statements.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final String url;
+    private final int maxConnections;
+    private final Map<String, String> pragmas;
+    private final BlockingQueue<PooledConnection> idleConnections;
+    private final List<PooledConnection> allConnections = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger createdConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    // Counters so we can see how much time is spent waiting and how often connections are replaced
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder openedCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * Name: ConnectionPool
+     *
+     * @param url            the jdbc url of the database, for example jdbc:sqlite:C:/sqlite/db/CarDealership.db
+     * @param maxConnections how many connections can be open at the same time
+     * @param pragmas        the SQLite pragmas that are run on every new connection, in order
+     */
+    public ConnectionPool(String url, int maxConnections, Map<String, String> pragmas) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        this.url = url;
+        this.maxConnections = maxConnections;
+        this.pragmas = new LinkedHashMap<>(pragmas);
+        this.idleConnections = new ArrayBlockingQueue<>(maxConnections);
+    }
+
+    /**
+     * Name: defaultPragmas
+     *
+     * These are the pragmas that we use unless they are changed. Any of them can be
+     * overridden with a system property named cardealership.sqlite.(pragma), for example
+     * -Dcardealership.sqlite.synchronous=FULL
+     *
+     * @return the pragma names and values in the order they should be run
+     */
+    public static Map<String, String> defaultPragmas() {
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        pragmas.put("journal_mode", "WAL");
+        pragmas.put("synchronous", "NORMAL");
+        pragmas.put("busy_timeout", "5000");
+        pragmas.put("cache_size", "-20000");
+        pragmas.put("mmap_size", "268435456");
+        pragmas.put("temp_store", "MEMORY");
+        pragmas.replaceAll((name, value) -> System.getProperty("cardealership.sqlite." + name, value));
+        return pragmas;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Name: borrow
+     *
+     * Gives out an idle connection, opens a new one if the pool is not full yet,
+     * or waits for another action to give one back.
+     *
+     * @return a connection that has to be closed to give it back to the pool
+     * @throws SQLException if the pool is closed, a connection could not be opened or we waited too long
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been closed");
+        }
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                PooledConnection connection = idleConnections.poll();
+                if (connection == null) {
+                    connection = tryCreate();
+                }
+                if (connection == null) {
+                    connection = idleConnections.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    if (connection == null) {
+                        throw new SQLException("Timed out waiting for a database connection");
+                    }
+                }
+                // Replace connections that were closed underneath us and try again
+                if (connection.getConnection().isClosed()) {
+                    discard(connection);
+                    continue;
+                }
+                connection.borrowed();
+                return connection;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            waitNanos.add(waited);
+            Metrics.record(Metrics.Operation.CONNECTION_ACQUIRE, waited, 0);
+        }
+    }
+
+    private PooledConnection tryCreate() throws SQLException {
+        while (true) {
+            int created = createdConnections.get();
+            if (created >= maxConnections) {
+                return null;
+            }
+            if (createdConnections.compareAndSet(created, created + 1)) {
+                break;
+            }
+        }
+        try {
+            Connection connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                    statement.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+                }
+            }
+            PooledConnection pooled = new PooledConnection(this, connection);
+            allConnections.add(pooled);
+            openedCount.increment();
+            return pooled;
+        } catch (SQLException e) {
+            createdConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Name: release
+     *
+     * Called by PooledConnection.close to give the connection back. A transaction that
+     * was left open is rolled back so the next user gets a clean connection.
+     */
+    void release(PooledConnection connection) {
+        try {
+            Connection raw = connection.getConnection();
+            if (raw.isClosed()) {
+                discard(connection);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Could not reset a connection, it is closed instead", e);
+            discard(connection);
+            return;
+        }
+        if (closed || !idleConnections.offer(connection)) {
+            discard(connection);
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        // After close the connection is not in the list any more and was already counted
+        if (allConnections.remove(connection)) {
+            createdConnections.decrementAndGet();
+            closedCount.increment();
+        }
+        connection.closeQuietly();
+    }
+
+    void recordStatementCache(boolean hit) {
+        if (hit) {
+            statementCacheHits.increment();
+        } else {
+            statementCacheMisses.increment();
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public int getOpenConnections() {
+        return createdConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Name: close
+     *
+     * Closes every connection that the pool has opened. Connections that are still
+     * borrowed are closed as well, so this should only be called when the database is
+     * no longer being used.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        idleConnections.clear();
+        synchronized (allConnections) {
+            for (PooledConnection connection : allConnections) {
+                connection.closeQuietly();
+                closedCount.increment();
+            }
+            allConnections.clear();
+        }
+        createdConnections.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[%s, open=%d, idle=%d, borrows=%d, avgWait=%.3fms, opened=%d, closed=%d, stmtHits=%d, stmtMisses=%d]",
+                url, getOpenConnections(), getIdleConnections(), getBorrowCount(), getAverageWaitMillis(),
+                getOpenedCount(), getClosedCount(), getStatementCacheHits(), getStatementCacheMisses());
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * DataSourceRegistry.java
+ * This class keeps the databases that were opened recently, one for each lot. Each
+ * one keeps its connections open and the cars that were loaded from it, so switching
+ * back to a lot that was used recently shows its cars right away without reading the
+ * database again. When too many are open the one that was used longest ago is closed
+ * on a background thread.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import javafx.collections.ObservableList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class DataSourceRegistry implements AutoCloseable {
+    public static final int DEFAULT_MAX_OPEN = Integer.getInteger("cardealership.maxOpenDatabases", 3);
+    private static final Logger LOG = Logger.getLogger(DataSourceRegistry.class.getName());
+
+    private final int maxOpen;
+    private final int connectionsPerDatabase;
+    // In order from used longest ago to used most recently
+    private final LinkedHashMap<Path, DataSource> dataSources = new LinkedHashMap<>(16, 0.75f, true);
+    // The databases that are being closed in the background
+    private final Map<Path, Thread> closing = new HashMap<>();
+
+    /**
+     * Name: DataSource
+     *
+     * One open database with its connections, its car service, the cars
+     * that were last shown from it and their search index and statistics.
+     * Telling it about a change to the cars passes it on to both of them.
+     */
+    public static class DataSource implements InventoryListener, AutoCloseable {
+        private final Path path;
+        private final ConnectionPool connectionPool;
+        private final CarService carService;
+        private final InventoryIndex index = new InventoryIndex();
+        private final InventoryStats stats = new InventoryStats();
+        private final WriteBehindQueue writeBehind;
+        private final OperationJournal journal;
+        private final CarArchiver archiver;
+        private ObservableList<Car> cars;
+        // True if the cars that were loaded include the archived ones
+        private boolean archivedIncluded;
+        private boolean migrated;
+        // The last entry of the CarChanges log that the loaded cars include, -1 before they are loaded
+        private volatile long changeSeq = -1;
+
+        DataSource(Path path, int connections) {
+            this.path = path;
+            this.connectionPool = new ConnectionPool("jdbc:sqlite:" + path, connections, ConnectionPool.defaultPragmas());
+            this.carService = new CarService(new CarRepository(connectionPool));
+            this.writeBehind = new WriteBehindQueue(carService);
+            this.journal = openJournal(path);
+            this.archiver = new CarArchiver(carService);
+        }
+
+        // The undo journal is kept next to the database, without it undo is turned off
+        private static OperationJournal openJournal(Path path) {
+            try {
+                return OperationJournal.open(path.resolveSibling(path.getFileName() + ".undo"));
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Undo is turned off for " + path, e);
+                return null;
+            }
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public ConnectionPool getConnectionPool() {
+            return connectionPool;
+        }
+
+        public CarService getCarService() {
+            return carService;
+        }
+
+        /**
+         * Name: getWriteBehind
+         *
+         * @return the queue of edits that are saved in the background
+         */
+        public WriteBehindQueue getWriteBehind() {
+            return writeBehind;
+        }
+
+        /**
+         * Name: getJournal
+         *
+         * @return the undo journal of the database, or null if its file could not be opened
+         */
+        public OperationJournal getJournal() {
+            return journal;
+        }
+
+        /**
+         * Name: getArchiver
+         *
+         * @return what moves the old sales of this database to the archive
+         */
+        public CarArchiver getArchiver() {
+            return archiver;
+        }
+
+        /**
+         * Name: getIndex
+         *
+         * @return the search index of the cars, it is only built when every car was loaded into memory
+         */
+        public InventoryIndex getIndex() {
+            return index;
+        }
+
+        public InventoryStats getStats() {
+            return stats;
+        }
+
+        @Override
+        public void carsLoaded(List<Car> cars) {
+            index.carsLoaded(cars);
+            stats.carsLoaded(cars);
+        }
+
+        @Override
+        public void carAdded(Car car) {
+            index.carAdded(car);
+            stats.carAdded(car);
+        }
+
+        @Override
+        public void carUpdated(Car before, Car car) {
+            index.carUpdated(before, car);
+            stats.carUpdated(before, car);
+        }
+
+        @Override
+        public void carsRemoved(Collection<Car> cars) {
+            index.carsRemoved(cars);
+            stats.carsRemoved(cars);
+        }
+
+        /**
+         * Name: clearInventory
+         *
+         * Empties the search index and statistics when the cars are not all in memory.
+         */
+        public void clearInventory() {
+            index.clear();
+            stats.clear();
+        }
+
+        /**
+         * Name: getCars
+         *
+         * @return the cars that were loaded from this database, or null if it was never loaded
+         */
+        public ObservableList<Car> getCars() {
+            return cars;
+        }
+
+        public void setCars(ObservableList<Car> cars) {
+            this.cars = cars;
+        }
+
+        public boolean isArchivedIncluded() {
+            return archivedIncluded;
+        }
+
+        public void setArchivedIncluded(boolean archivedIncluded) {
+            this.archivedIncluded = archivedIncluded;
+        }
+
+        public long getChangeSeq() {
+            return changeSeq;
+        }
+
+        public void setChangeSeq(long changeSeq) {
+            this.changeSeq = changeSeq;
+        }
+
+        public boolean isMigrated() {
+            return migrated;
+        }
+
+        public void setMigrated(boolean migrated) {
+            this.migrated = migrated;
+        }
+
+        @Override
+        public void close() {
+            // The edits that are still waiting are written before the writer thread stops
+            writeBehind.close();
+            LOG.fine(writeBehind::toString);
+            carService.close();
+            LOG.fine(connectionPool::toString);
+            connectionPool.close();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Could not close the undo journal of " + path, e);
+                }
+            }
+        }
+    }
+
+    public DataSourceRegistry() {
+        this(DEFAULT_MAX_OPEN, 4);
+    }
+
+    /**
+     * Name: DataSourceRegistry
+     *
+     * @param maxOpen                how many databases can be open at the same time
+     * @param connectionsPerDatabase the size of the connection pool of each database
+     */
+    public DataSourceRegistry(int maxOpen, int connectionsPerDatabase) {
+        this.maxOpen = maxOpen;
+        this.connectionsPerDatabase = connectionsPerDatabase;
+    }
+
+    /**
+     * Name: open
+     *
+     * Gives back the database at the path, opening it if it is not open already.
+     * Opening one more than the limit closes the one used longest ago.
+     *
+     * @param path the database file
+     * @return the open database
+     */
+    public synchronized DataSource open(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        DataSource dataSource = dataSources.get(key);
+        if (dataSource == null) {
+            // A database that was just closed has to finish first, it still has the undo journal open
+            awaitClosed(closing.remove(key));
+            dataSource = new DataSource(key, connectionsPerDatabase);
+            dataSources.put(key, dataSource);
+            evict();
+        }
+        return dataSource;
+    }
+
+    private void evict() {
+        while (dataSources.size() > maxOpen) {
+            Map.Entry<Path, DataSource> eldest = dataSources.entrySet().iterator().next();
+            dataSources.remove(eldest.getKey());
+            closeInBackground(eldest.getValue());
+        }
+    }
+
+    // Closing waits for the edits that are still being saved, so the window does not wait for it.
+    // The thread is not a daemon so those edits are still saved if the program is closed meanwhile.
+    private void closeInBackground(DataSource dataSource) {
+        closing.values().removeIf(thread -> !thread.isAlive());
+        Thread thread = new Thread(() -> {
+            try {
+                dataSource.close();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Could not close " + dataSource.getPath(), e);
+            }
+        }, "close-" + dataSource.getPath().getFileName());
+        closing.put(dataSource.getPath(), thread);
+        thread.start();
+    }
+
+    private static void awaitClosed(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Name: getOpenPaths
+     *
+     * @return the databases that are open, the most recently used last
+     */
+    public synchronized List<Path> getOpenPaths() {
+        return new ArrayList<>(dataSources.keySet());
+    }
+
+    /**
+     * Name: describeConnectionPools
+     *
+     * @return one line for each open database with how its connections have been used
+     */
+    public synchronized List<String> describeConnectionPools() {
+        List<String> pools = new ArrayList<>();
+        for (DataSource dataSource : dataSources.values()) {
+            pools.add(dataSource.getConnectionPool().toString());
+        }
+        return pools;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (DataSource dataSource : dataSources.values()) {
+            dataSource.close();
+        }
+        dataSources.clear();
+        for (Thread thread : closing.values()) {
+            awaitClosed(thread);
+        }
+        closing.clear();
+    }
+}
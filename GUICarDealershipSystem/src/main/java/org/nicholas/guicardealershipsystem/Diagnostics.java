@@ -0,0 +1,249 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * Diagnostics.java
+ * This class sets up what we need to find out why the program is slow when someone
+ * says it is. Everything the program logs goes to a log file that rolls over to a new
+ * file when it gets big, the metrics are written to the log every minute when they
+ * changed, they can be watched with JMX, and a watcher thread notices when the JavaFX
+ * thread is blocked and logs what it was doing.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import javafx.application.Platform;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+public final class Diagnostics implements MetricsMXBean {
+    // How long the JavaFX thread can be busy before it counts as a stall
+    public static final long FX_STALL_MILLIS = Long.getLong("cardealership.fxStallMillis", 250);
+    private static final long FX_CHECK_MILLIS = 100;
+    private static final long REPORT_SECONDS = Long.getLong("cardealership.metrics.reportSeconds", 60);
+    private static final int LOG_FILE_BYTES = 5_000_000;
+    private static final int LOG_FILE_COUNT = 5;
+
+    // Kept here so the logger with the file handler is never garbage collected
+    private static final Logger APP_LOGGER = Logger.getLogger("org.nicholas.guicardealershipsystem");
+    private static final Logger LOG = Logger.getLogger(Diagnostics.class.getName());
+    private static Diagnostics instance;
+
+    private final String logFile;
+    private final ScheduledExecutorService reporter;
+    private final LongAdder fxStallCount = new LongAdder();
+    private final AtomicLong longestFxStallNanos = new AtomicLong();
+    private volatile Supplier<List<String>> connectionPools = List::of;
+    private volatile boolean fxWatcherRunning;
+    private long lastReportedCount;
+
+    /**
+     * Name: install
+     *
+     * Sets up the log file, JMX and the metrics report the first time it is called.
+     *
+     * @return the diagnostics of the program
+     */
+    public static synchronized Diagnostics install() {
+        if (instance == null) {
+            instance = new Diagnostics();
+        }
+        return instance;
+    }
+
+    private Diagnostics() {
+        logFile = installLogFile();
+        registerMXBean();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (Metrics.ENABLED) {
+            reporter.scheduleAtFixedRate(this::report, REPORT_SECONDS, REPORT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String installLogFile() {
+        Path directory = Path.of(System.getProperty("cardealership.logDir",
+                Path.of(System.getProperty("user.home"), ".cardealership", "logs").toString()));
+        try {
+            Files.createDirectories(directory);
+            String pattern = directory.resolve("cardealership-%g.log").toString();
+            FileHandler handler = new FileHandler(pattern, LOG_FILE_BYTES, LOG_FILE_COUNT, true);
+            handler.setFormatter(new SimpleFormatter());
+            APP_LOGGER.addHandler(handler);
+            return directory.resolve("cardealership-0.log").toString();
+        } catch (IOException | SecurityException e) {
+            LOG.log(Level.WARNING, "Could not open the log file in " + directory + ", logging to the console only", e);
+            return null;
+        }
+    }
+
+    private void registerMXBean() {
+        try {
+            ObjectName name = new ObjectName("org.nicholas.guicardealershipsystem:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register the metrics with JMX", e);
+        }
+    }
+
+    /**
+     * Name: setConnectionPools
+     *
+     * @param connectionPools gives a line about each open connection pool for JMX and the overlay
+     */
+    public void setConnectionPools(Supplier<List<String>> connectionPools) {
+        this.connectionPools = connectionPools;
+    }
+
+    // Writes the metrics to the log, but only when something happened since last time
+    private synchronized void report() {
+        long count = Metrics.getTotalCount();
+        if (count != lastReportedCount) {
+            lastReportedCount = count;
+            LOG.info("Metrics\n" + Metrics.summary());
+        }
+    }
+
+    /**
+     * Name: startFxStallWatcher
+     *
+     * Starts a thread that asks the JavaFX thread to run a tiny piece of work every
+     * 100 ms and measures how long it took to get to it. If it takes longer than
+     * FX_STALL_MILLIS the JavaFX thread is blocked, so what it is doing is logged.
+     * Does nothing when metrics are turned off.
+     */
+    public void startFxStallWatcher() {
+        if (!Metrics.ENABLED || fxWatcherRunning) {
+            return;
+        }
+        fxWatcherRunning = true;
+        Thread watcher = new Thread(this::watchFxThread, "fx-stall-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchFxThread() {
+        AtomicReference<Thread> fxThread = new AtomicReference<>();
+        try {
+            while (fxWatcherRunning) {
+                long posted = System.nanoTime();
+                CountDownLatch ran = new CountDownLatch(1);
+                Platform.runLater(() -> {
+                    fxThread.set(Thread.currentThread());
+                    Metrics.record(Metrics.Operation.FX_DELAY, System.nanoTime() - posted, 0);
+                    ran.countDown();
+                });
+                if (!ran.await(FX_STALL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    // Take the stack now while the thread is still stuck
+                    Thread thread = fxThread.get();
+                    StackTraceElement[] stack = thread == null ? new StackTraceElement[0] : thread.getStackTrace();
+                    ran.await();
+                    long stallNanos = System.nanoTime() - posted;
+                    fxStallCount.increment();
+                    longestFxStallNanos.accumulateAndGet(stallNanos, Math::max);
+                    LOG.warning(String.format("The JavaFX thread was blocked for %,d ms, it was at:%n%s",
+                            stallNanos / 1_000_000, formatStack(stack)));
+                }
+                Thread.sleep(FX_CHECK_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String formatStack(StackTraceElement[] stack) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < stack.length && i < 25; i++) {
+            text.append("    at ").append(stack[i]).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Name: overlayText
+     *
+     * @return the text of the on-screen diagnostics overlay
+     */
+    public String overlayText() {
+        StringBuilder text = new StringBuilder(Metrics.summary());
+        text.append(String.format("%nFX stalls over %d ms: %,d, longest %,.1f ms", FX_STALL_MILLIS, getFxStallCount(), getLongestFxStallMillis()));
+        for (String pool : getConnectionPools()) {
+            text.append(System.lineSeparator()).append(pool);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Name: shutdown
+     *
+     * Stops the watcher and the report and writes the metrics to the log one last time.
+     */
+    public void shutdown() {
+        fxWatcherRunning = false;
+        reporter.shutdownNow();
+        if (Metrics.ENABLED) {
+            lastReportedCount = -1;
+            report();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Metrics.ENABLED;
+    }
+
+    @Override
+    public List<Metrics.OperationStats> getOperations() {
+        return Metrics.getAllStats();
+    }
+
+    @Override
+    public long getFxStallCount() {
+        return fxStallCount.sum();
+    }
+
+    @Override
+    public double getLongestFxStallMillis() {
+        return longestFxStallNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public List<String> getConnectionPools() {
+        return connectionPools.get();
+    }
+
+    @Override
+    public String getLogFile() {
+        return logFile;
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+        fxStallCount.reset();
+        longestFxStallNanos.set(0);
+    }
+}
@@ -0,0 +1,678 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * InventoryIndex.java
+ * This class is an index of the loaded cars that makes searching fast. Every car gets
+ * a slot number. The text attributes are stored as a number for each different value
+ * (so "Toyota" is only kept once), year and price are kept in plain int and double arrays,
+ * and for every value there is a bitmap of the slots that have it. Searching on more than
+ * one field is then just ANDing the bitmaps together instead of checking every car.
+ * For year and price ranges the slots are also kept sorted by year and by price, so a
+ * range is two binary searches plus the cars in it. The index is kept up to date as
+ * cars are added, edited and removed. The sorted slots are only sorted the first time a
+ * range is searched after a load, after that each change is put in its place with a
+ * binary search. The words in the text values are also kept in an NGramIndex for the
+ * search box, which finds a car by any word in it even with a typo.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+public class InventoryIndex implements InventoryListener {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Every word in the text values, shared by the columns
+    private final NGramIndex words = new NGramIndex();
+    private final DictionaryColumn makes = new DictionaryColumn(words);
+    private final DictionaryColumn models = new DictionaryColumn(words);
+    private final DictionaryColumn colors = new DictionaryColumn(words);
+    private final DictionaryColumn engines = new DictionaryColumn(words);
+    private final DictionaryColumn transmissions = new DictionaryColumn(words);
+    private final Map<Integer, BitSet> yearPostings = new HashMap<>();
+    private final Map<Integer, Integer> slotsById = new HashMap<>();
+    // The slots that have a car in them, removed cars leave an empty slot until the next compact
+    private final BitSet live = new BitSet();
+    private Car[] cars = new Car[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private final SortedColumn yearOrder = new SortedColumn();
+    private final SortedColumn priceOrder = new SortedColumn();
+    // True until the sorted slots are built after a load, the changes before that are left to the build
+    private boolean sortedStale = true;
+    private int slotCount;
+    private boolean built;
+
+    /**
+     * Name: DictionaryColumn
+     *
+     * One text attribute of every car. Each different value (ignoring case) gets a
+     * code, and each code has a bitmap of the slots that have that value and the ids
+     * of the words in it.
+     */
+    static class DictionaryColumn {
+        private final NGramIndex words;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<BitSet> postings = new ArrayList<>();
+        private final List<int[]> wordsByCode = new ArrayList<>();
+        private int[] codesBySlot = new int[INITIAL_CAPACITY];
+
+        DictionaryColumn(NGramIndex words) {
+            this.words = words;
+        }
+
+        private static String key(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+
+        void set(int slot, String value) {
+            String key = key(value);
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = values.size();
+                codes.put(key, code);
+                values.add(key);
+                postings.add(new BitSet());
+                List<String> valueWords = NGramIndex.words(key);
+                int[] wordIds = new int[valueWords.size()];
+                for (int i = 0; i < wordIds.length; i++) {
+                    wordIds[i] = words.add(valueWords.get(i));
+                }
+                wordsByCode.add(wordIds);
+            }
+            if (slot >= codesBySlot.length) {
+                codesBySlot = Arrays.copyOf(codesBySlot, Math.max(slot + 1, codesBySlot.length * 2));
+            }
+            codesBySlot[slot] = code;
+            postings.get(code).set(slot);
+        }
+
+        void clear(int slot) {
+            postings.get(codesBySlot[slot]).clear(slot);
+        }
+
+        /**
+         * Name: slotsWith
+         *
+         * @return the slots that have the value ignoring case, or null if no car has ever had it
+         */
+        BitSet slotsWith(String value) {
+            Integer code = codes.get(key(value));
+            return code == null ? null : postings.get(code);
+        }
+
+        /**
+         * Name: slotsStartingWith
+         *
+         * @return the slots that have a value starting with the prefix, ignoring case
+         */
+        BitSet slotsStartingWith(String prefix) {
+            String key = key(prefix);
+            BitSet slots = new BitSet();
+            for (int code = 0; code < values.size(); code++) {
+                if (values.get(code).startsWith(key)) {
+                    slots.or(postings.get(code));
+                }
+            }
+            return slots;
+        }
+
+        /**
+         * Name: scoreValues
+         *
+         * @param wordScores the score of every word for one typed word, by word id
+         * @return the score of each value by its code, which is the score of its best word
+         */
+        float[] scoreValues(float[] wordScores) {
+            float[] scores = new float[values.size()];
+            for (int code = 0; code < scores.length; code++) {
+                for (int wordId : wordsByCode.get(code)) {
+                    scores[code] = Math.max(scores[code], wordScores[wordId]);
+                }
+            }
+            return scores;
+        }
+
+        int codeAt(int slot) {
+            return codesBySlot[slot];
+        }
+
+        int distinctValues() {
+            return values.size();
+        }
+
+        void reset() {
+            codes.clear();
+            values.clear();
+            postings.clear();
+            wordsByCode.clear();
+        }
+    }
+
+    /**
+     * Name: SortedColumn
+     *
+     * The slots sorted by a number like the year or the price, kept in plain arrays.
+     * Slots with the same number are sorted by slot, so every slot has one place and
+     * a change can find it with a binary search.
+     */
+    static class SortedColumn {
+        private double[] keys = new double[0];
+        private int[] slots = new int[0];
+        private int size;
+
+        void build(BitSet live, IntToDoubleFunction keyOfSlot) {
+            size = live.cardinality();
+            keys = new double[size + size / 4 + 16];
+            slots = new int[keys.length];
+            int i = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                keys[i] = keyOfSlot.applyAsDouble(slot);
+                slots[i] = slot;
+                i++;
+            }
+            sort(0, size - 1);
+        }
+
+        /**
+         * Name: insert
+         *
+         * Puts the slot in its place, moving the ones after it along by one.
+         */
+        void insert(double key, int slot) {
+            int i = position(key, slot);
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2 + 16);
+                slots = Arrays.copyOf(slots, keys.length);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(slots, i, slots, i + 1, size - i);
+            keys[i] = key;
+            slots[i] = slot;
+            size++;
+        }
+
+        /**
+         * Name: remove
+         *
+         * @param key the number the slot was sorted by
+         */
+        void remove(double key, int slot) {
+            int i = position(key, slot);
+            if (i < size && keys[i] == key && slots[i] == slot) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Name: range
+         *
+         * @return the slots with a key from min to max, both included
+         */
+        BitSet range(double min, double max) {
+            BitSet result = new BitSet();
+            for (int i = position(min, Integer.MIN_VALUE); i < size && keys[i] <= max; i++) {
+                result.set(slots[i]);
+            }
+            return result;
+        }
+
+        // The first place that is not before the key and slot
+        private int position(double key, int slot) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(keys[middle], slots[middle], key, slot) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int compare(double key, int slot, double otherKey, int otherSlot) {
+            if (key != otherKey) {
+                return key < otherKey ? -1 : 1;
+            }
+            return Integer.compare(slot, otherSlot);
+        }
+
+        // Quicksort of the keys that moves the slots along with them
+        private void sort(int low, int high) {
+            while (high - low >= 16) {
+                int middle = (low + high) >>> 1;
+                double pivot = keys[middle];
+                int pivotSlot = slots[middle];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (compare(keys[i], slots[i], pivot, pivotSlot) < 0) {
+                        i++;
+                    }
+                    while (compare(keys[j], slots[j], pivot, pivotSlot) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // Sort the smaller side first so the stack stays small
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && compare(keys[j - 1], slots[j - 1], keys[j], slots[j]) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            double key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            int slot = slots[i];
+            slots[i] = slots[j];
+            slots[j] = slot;
+        }
+    }
+
+    /**
+     * Name: isBuilt
+     *
+     * @return true once the index has been built from a full load of the cars
+     */
+    public synchronized boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Name: get
+     *
+     * @return the car with the id, or null if it is not in the index
+     */
+    public synchronized Car get(int id) {
+        Integer slot = slotsById.get(id);
+        return slot == null ? null : cars[slot];
+    }
+
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Name: clear
+     *
+     * Empties the index, it is not used again until the cars are loaded again.
+     */
+    public synchronized void clear() {
+        carsLoaded(List.of());
+        built = false;
+    }
+
+    @Override
+    public synchronized void carsLoaded(List<Car> loadedCars) {
+        words.clear();
+        makes.reset();
+        models.reset();
+        colors.reset();
+        engines.reset();
+        transmissions.reset();
+        yearPostings.clear();
+        slotsById.clear();
+        live.clear();
+        sortedStale = true;
+        int capacity = Math.max(INITIAL_CAPACITY, loadedCars.size() + loadedCars.size() / 4);
+        cars = new Car[capacity];
+        years = new int[capacity];
+        prices = new double[capacity];
+        slotCount = 0;
+        for (Car car : loadedCars) {
+            addSlot(car);
+        }
+        built = true;
+    }
+
+    @Override
+    public synchronized void carAdded(Car car) {
+        if (built && !slotsById.containsKey(car.getId())) {
+            addSlot(car);
+        }
+    }
+
+    @Override
+    public synchronized void carUpdated(Car before, Car car) {
+        Integer slot = slotsById.get(car.getId());
+        if (slot == null) {
+            carAdded(car);
+            return;
+        }
+        clearSlot(slot);
+        fillSlot(slot, car);
+    }
+
+    @Override
+    public synchronized void carsRemoved(Collection<Car> removedCars) {
+        for (Car car : removedCars) {
+            Integer slot = slotsById.remove(car.getId());
+            if (slot != null) {
+                clearSlot(slot);
+                live.clear(slot);
+                cars[slot] = null;
+            }
+        }
+        // Build the slots again once more than half of them are empty
+        if (slotCount > INITIAL_CAPACITY && live.cardinality() < slotCount / 2) {
+            List<Car> remaining = new ArrayList<>(live.cardinality());
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                remaining.add(cars[slot]);
+            }
+            carsLoaded(remaining);
+        }
+    }
+
+    private void addSlot(Car car) {
+        int slot = slotCount++;
+        if (slot >= cars.length) {
+            int capacity = cars.length * 2;
+            cars = Arrays.copyOf(cars, capacity);
+            years = Arrays.copyOf(years, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        slotsById.put(car.getId(), slot);
+        live.set(slot);
+        fillSlot(slot, car);
+    }
+
+    private void fillSlot(int slot, Car car) {
+        cars[slot] = car;
+        years[slot] = car.getYear();
+        prices[slot] = car.getPrice();
+        if (!sortedStale) {
+            yearOrder.insert(years[slot], slot);
+            priceOrder.insert(prices[slot], slot);
+        }
+        yearPostings.computeIfAbsent(car.getYear(), year -> new BitSet()).set(slot);
+        makes.set(slot, car.getMake());
+        models.set(slot, car.getModel());
+        colors.set(slot, car.getColor());
+        engines.set(slot, car.getEngine());
+        transmissions.set(slot, car.getTransmissionType());
+    }
+
+    private void clearSlot(int slot) {
+        if (!sortedStale) {
+            yearOrder.remove(years[slot], slot);
+            priceOrder.remove(prices[slot], slot);
+        }
+        BitSet yearSlots = yearPostings.get(years[slot]);
+        if (yearSlots != null) {
+            yearSlots.clear(slot);
+        }
+        makes.clear(slot);
+        models.clear(slot);
+        colors.clear(slot);
+        engines.clear(slot);
+        transmissions.clear(slot);
+    }
+
+    /**
+     * Name: matchingSlots
+     *
+     * ANDs together the bitmaps of every field in the filter. For a prefix filter the
+     * bitmaps of every value starting with the filter are ORed together first.
+     *
+     * @param filter what the cars have to match
+     * @return the slots of the matching cars
+     */
+    private BitSet matchingSlots(CarFilter filter) {
+        BitSet result = (BitSet) live.clone();
+        if (filter.hasYearRange() || filter.hasPriceRange()) {
+            if (sortedStale) {
+                yearOrder.build(live, slot -> years[slot]);
+                priceOrder.build(live, slot -> prices[slot]);
+                sortedStale = false;
+            }
+            if (filter.hasYearRange()) {
+                result.and(yearOrder.range(filter.getMinYear(), filter.getMaxYear()));
+            }
+            if (filter.hasPriceRange()) {
+                result.and(priceOrder.range(filter.getMinPrice(), filter.getMaxPrice()));
+            }
+        }
+        if (!filter.getYear().isEmpty()) {
+            and(result, filter.isPrefix() ? yearsStartingWith(filter) : yearPostings.get(filter.getYearValue()));
+        }
+        if (!filter.getMake().isEmpty()) {
+            and(result, textSlots(makes, filter.getMake(), filter.isPrefix()));
+        }
+        if (!filter.getModel().isEmpty()) {
+            and(result, textSlots(models, filter.getModel(), filter.isPrefix()));
+        }
+        if (!filter.getColor().isEmpty()) {
+            and(result, textSlots(colors, filter.getColor(), filter.isPrefix()));
+        }
+        return result;
+    }
+
+    private static BitSet textSlots(DictionaryColumn column, String value, boolean prefix) {
+        return prefix ? column.slotsStartingWith(value) : column.slotsWith(value);
+    }
+
+    private BitSet yearsStartingWith(CarFilter filter) {
+        BitSet slots = new BitSet();
+        for (Map.Entry<Integer, BitSet> entry : yearPostings.entrySet()) {
+            if (filter.matchesYear(entry.getKey())) {
+                slots.or(entry.getValue());
+            }
+        }
+        return slots;
+    }
+
+    private static void and(BitSet result, BitSet slots) {
+        if (slots == null) {
+            result.clear();
+        } else {
+            result.and(slots);
+        }
+    }
+
+    /**
+     * Name: find
+     *
+     * @param filter what the cars have to match
+     * @return the cars that match the filter
+     */
+    public synchronized List<Car> find(CarFilter filter) {
+        BitSet slots = matchingSlots(filter);
+        List<Car> matches = new ArrayList<>(slots.cardinality());
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            matches.add(cars[slot]);
+        }
+        return matches;
+    }
+
+    /**
+     * Name: findIds
+     *
+     * @param filter what the cars have to match
+     * @return a bitmap with the ids of the matching cars set, so checking a car is one bit lookup
+     */
+    public synchronized BitSet findIds(CarFilter filter) {
+        BitSet slots = matchingSlots(filter);
+        BitSet ids = new BitSet();
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            ids.set(cars[slot].getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Name: count
+     *
+     * @param filter what the cars have to match
+     * @return how many cars match the filter
+     */
+    public synchronized int count(CarFilter filter) {
+        return matchingSlots(filter).cardinality();
+    }
+
+    /**
+     * Name: search
+     *
+     * Finds the cars that have every typed word, or a word close to it, in their make,
+     * model, color, engine or transmission. Each typed word is scored against the words
+     * in the NGramIndex once, then against each different value once, so checking a car
+     * is only looking up the score of its values in the columns where the word was found.
+     * The score of a car is the score of the best match of each typed word added up, and
+     * only the best cars up to the limit are kept while the cars are checked.
+     *
+     * @param text  what was typed in the search box
+     * @param limit the most cars to give back
+     * @return the best matching cars, the best match first
+     */
+    public synchronized List<Car> search(String text, int limit) {
+        List<String> typed = NGramIndex.words(text);
+        if (typed.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        DictionaryColumn[] columns = {makes, models, colors, engines, transmissions};
+        // For each typed word, the columns that have a value with a matching word and the scores of their values
+        DictionaryColumn[][] matchedColumns = new DictionaryColumn[typed.size()][];
+        float[][][] valueScores = new float[typed.size()][][];
+        for (int t = 0; t < typed.size(); t++) {
+            float[] wordScores = words.scores(typed.get(t));
+            List<DictionaryColumn> matched = new ArrayList<>();
+            List<float[]> scores = new ArrayList<>();
+            for (DictionaryColumn column : columns) {
+                float[] columnScores = column.scoreValues(wordScores);
+                for (float score : columnScores) {
+                    if (score > 0) {
+                        matched.add(column);
+                        scores.add(columnScores);
+                        break;
+                    }
+                }
+            }
+            if (matched.isEmpty()) {
+                // No car has this word
+                return new ArrayList<>();
+            }
+            matchedColumns[t] = matched.toArray(new DictionaryColumn[0]);
+            valueScores[t] = scores.toArray(new float[0][]);
+        }
+        TopMatches best = new TopMatches(limit);
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            float total = 0;
+            for (int t = 0; t < typed.size() && total >= 0; t++) {
+                float score = 0;
+                for (int c = 0; c < matchedColumns[t].length; c++) {
+                    score = Math.max(score, valueScores[t][c][matchedColumns[t][c].codeAt(slot)]);
+                }
+                // -1 marks a car that is missing one of the typed words
+                total = score > 0 ? total + score : -1;
+            }
+            if (total > 0) {
+                best.offer(total, slot);
+            }
+        }
+        List<Car> found = new ArrayList<>();
+        for (int slot : best.slotsBestFirst()) {
+            found.add(cars[slot]);
+        }
+        return found;
+    }
+
+    /**
+     * Name: TopMatches
+     *
+     * Keeps the best scoring slots up to a limit in a heap with the worst one on top,
+     * so a slot that is not better than the worst one kept is skipped right away. The
+     * score and slot are kept together in one long so comparing them is one compare.
+     */
+    static class TopMatches {
+        private final long[] heap;
+        private int size;
+
+        TopMatches(int limit) {
+            heap = new long[limit];
+        }
+
+        void offer(float score, int slot) {
+            // Cars with the same score are in slot order, which is the order they were loaded
+            long match = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - slot);
+            if (size < heap.length) {
+                heap[size] = match;
+                siftUp(size++);
+            } else if (match > heap[0]) {
+                heap[0] = match;
+                siftDown(0);
+            }
+        }
+
+        int[] slotsBestFirst() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+            }
+            return slots;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0 && heap[(i - 1) / 2] > heap[i]) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (heap[child] < heap[smallest]) {
+                        smallest = child;
+                    }
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long match = heap[i];
+            heap[i] = heap[j];
+            heap[j] = match;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "InventoryIndex[cars=" + slotsById.size() + ", slots=" + slotCount + ", makes=" + makes.distinctValues()
+                + ", models=" + models.distinctValues() + ", colors=" + colors.distinctValues()
+                + ", engines=" + engines.distinctValues() + ", transmissions=" + transmissions.distinctValues() + ", " + words + "]";
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * InventoryListener.java
+ * This interface is for the things that keep their own copy of information about
+ * the cars, like the search index, so they can be kept up to date one car at a time
+ * instead of being built again after every change.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface InventoryListener {
+    /**
+     * Name: carsLoaded
+     *
+     * @param cars every car that was read from the database, replacing what was there
+     */
+    void carsLoaded(List<Car> cars);
+
+    void carAdded(Car car);
+
+    /**
+     * Name: carUpdated
+     *
+     * @param before a copy of the car with the values from before the change
+     * @param car    the car with its new values
+     */
+    void carUpdated(Car before, Car car);
+
+    void carsRemoved(Collection<Car> cars);
+}
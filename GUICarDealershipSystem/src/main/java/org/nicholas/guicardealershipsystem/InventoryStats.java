@@ -0,0 +1,282 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * InventoryStats.java
+ * This class keeps the numbers for the statistics panel: how many cars there are,
+ * their average price, the value of the cars that are not sold yet and how many are
+ * sold, for all the cars and for each make, model, year and color. They are added up
+ * once when the cars are loaded, using every processor for big lists, and after that
+ * each added, edited or removed car only changes the totals of its own groups.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+public class InventoryStats implements InventoryListener {
+    // Lists smaller than this are added up on one thread
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    private Rollup rollup = new Rollup();
+    private boolean built;
+
+    /**
+     * Name: Dimension
+     *
+     * What the cars can be grouped by.
+     */
+    public enum Dimension {
+        MAKE("Make", Car::getMake),
+        MODEL("Model", car -> car.getMake() + " " + car.getModel()),
+        YEAR("Year", car -> Integer.toString(car.getYear())),
+        COLOR("Color", Car::getColor);
+
+        private final String label;
+        private final Function<Car, String> groupOf;
+
+        Dimension(String label, Function<Car, String> groupOf) {
+            this.label = label;
+            this.groupOf = groupOf;
+        }
+
+        String groupOf(Car car) {
+            String group = groupOf.apply(car);
+            return group == null ? "" : group;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Name: Summary
+     *
+     * The numbers for one group of cars, or for all of them. It is a copy, so it
+     * does not change when the cars do.
+     */
+    public static class Summary {
+        private final String group;
+        private final long count;
+        private final long soldCount;
+        private final double totalPrice;
+        private final double stockValue;
+
+        Summary(String group, long count, long soldCount, double totalPrice, double stockValue) {
+            this.group = group;
+            this.count = count;
+            this.soldCount = soldCount;
+            this.totalPrice = totalPrice;
+            this.stockValue = stockValue;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSoldCount() {
+            return soldCount;
+        }
+
+        public double getAveragePrice() {
+            return count == 0 ? 0 : totalPrice / count;
+        }
+
+        /**
+         * Name: getStockValue
+         *
+         * @return the total price of the cars that are not sold
+         */
+        public double getStockValue() {
+            return stockValue;
+        }
+
+        public double getSoldRatio() {
+            return count == 0 ? 0 : (double) soldCount / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d cars, average $%,.2f, stock value $%,.2f, %,d sold (%.1f%%)",
+                    group, count, getAveragePrice(), stockValue, soldCount, getSoldRatio() * 100);
+        }
+    }
+
+    // The running totals of one group
+    private static class Totals {
+        private final String group;
+        private long count;
+        private long soldCount;
+        private double totalPrice;
+        private double stockValue;
+
+        Totals(String group) {
+            this.group = group;
+        }
+
+        void add(Car car, int sign) {
+            count += sign;
+            totalPrice += sign * car.getPrice();
+            if (car.isSold()) {
+                soldCount += sign;
+            } else {
+                stockValue += sign * car.getPrice();
+            }
+        }
+
+        void merge(Totals other) {
+            count += other.count;
+            soldCount += other.soldCount;
+            totalPrice += other.totalPrice;
+            stockValue += other.stockValue;
+        }
+
+        Summary summary() {
+            return new Summary(group, count, soldCount, totalPrice, stockValue);
+        }
+    }
+
+    // The totals of all the cars and of every group, it can be added up in parts and merged
+    private static class Rollup {
+        private final Totals all = new Totals("All cars");
+        private final Map<Dimension, Map<String, Totals>> groups = new EnumMap<>(Dimension.class);
+
+        Rollup() {
+            for (Dimension dimension : Dimension.values()) {
+                groups.put(dimension, new HashMap<>());
+            }
+        }
+
+        void add(Car car) {
+            change(car, 1);
+        }
+
+        void remove(Car car) {
+            change(car, -1);
+        }
+
+        private void change(Car car, int sign) {
+            all.add(car, sign);
+            for (Map.Entry<Dimension, Map<String, Totals>> entry : groups.entrySet()) {
+                String group = entry.getKey().groupOf(car);
+                // Groups ignore upper and lower case like the filters, the first spelling is shown
+                String key = group.toLowerCase(Locale.ROOT);
+                Map<String, Totals> totalsByGroup = entry.getValue();
+                Totals totals = totalsByGroup.computeIfAbsent(key, k -> new Totals(group));
+                totals.add(car, sign);
+                if (totals.count <= 0) {
+                    totalsByGroup.remove(key);
+                }
+            }
+        }
+
+        Rollup merge(Rollup other) {
+            all.merge(other.all);
+            for (Dimension dimension : Dimension.values()) {
+                Map<String, Totals> totalsByGroup = groups.get(dimension);
+                for (Map.Entry<String, Totals> entry : other.groups.get(dimension).entrySet()) {
+                    Totals totals = totalsByGroup.get(entry.getKey());
+                    if (totals == null) {
+                        totalsByGroup.put(entry.getKey(), entry.getValue());
+                    } else {
+                        totals.merge(entry.getValue());
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
+    public synchronized boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Name: clear
+     *
+     * Throws away the totals, they are not shown again until the cars are loaded again.
+     */
+    public synchronized void clear() {
+        rollup = new Rollup();
+        built = false;
+    }
+
+    @Override
+    public void carsLoaded(List<Car> cars) {
+        // Added up outside the lock, big lists are split over every processor and the parts merged
+        Rollup loaded;
+        if (cars.size() < PARALLEL_THRESHOLD) {
+            loaded = new Rollup();
+            cars.forEach(loaded::add);
+        } else {
+            loaded = cars.parallelStream().collect(Rollup::new, Rollup::add, Rollup::merge);
+        }
+        synchronized (this) {
+            rollup = loaded;
+            built = true;
+        }
+    }
+
+    @Override
+    public synchronized void carAdded(Car car) {
+        if (built) {
+            rollup.add(car);
+        }
+    }
+
+    @Override
+    public synchronized void carUpdated(Car before, Car car) {
+        if (built) {
+            rollup.remove(before);
+            rollup.add(car);
+        }
+    }
+
+    @Override
+    public synchronized void carsRemoved(Collection<Car> cars) {
+        if (!built) {
+            return;
+        }
+        for (Car car : cars) {
+            rollup.remove(car);
+        }
+    }
+
+    /**
+     * Name: getTotal
+     *
+     * @return the numbers for all the cars
+     */
+    public synchronized Summary getTotal() {
+        return rollup.all.summary();
+    }
+
+    /**
+     * Name: getSummaries
+     *
+     * @param dimension what to group the cars by
+     * @return the numbers for every group, the groups with the most cars first
+     */
+    public synchronized List<Summary> getSummaries(Dimension dimension) {
+        List<Summary> summaries = new ArrayList<>();
+        for (Totals totals : rollup.groups.get(dimension).values()) {
+            summaries.add(totals.summary());
+        }
+        summaries.sort(Comparator.comparingLong(Summary::getCount).reversed().thenComparing(Summary::getGroup));
+        return summaries;
+    }
+}
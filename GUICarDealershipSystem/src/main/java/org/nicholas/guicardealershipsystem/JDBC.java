@@ -1,42 +1,59 @@
-/**
- * Nicholas Dhannie
- * CEN 3024C - Software Development 1
- * March 29, 2024
- * JDBS.java
- * This class is what will be testing the connection to the database
- */
-
-package org.nicholas.guicardealershipsystem;
-
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-
-public class JDBC {
-    public static void main(String[] args) throws SQLException {
-
-        String query = "select * from Cars";
-        String url = "jdbc:sqlite:C:/sqlite/db/CarDealership.db";
-
-        try {
-            Connection con = DriverManager.getConnection(url);
-            Statement statement = con.createStatement();
-            ResultSet result = statement.executeQuery(query);
-
-            while (result.next()) {
-                String CarDealershipData = "";
-                for (int i = 1; i <= 9; i++) {
-                    CarDealershipData += result.getString(i) + " ";
-                }
-                System.out.println(CarDealershipData);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-
-        }
-
-    }
-}
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * March 29, 2024
+ * JDBS.java
+ * This class is what will be testing the connection to the database. It prints
+ * every car in the database as CSV (or JSON) without needing the GUI, so it can
+ * also be used to export the inventory for other systems:
+ *
+ *     java org.nicholas.guicardealershipsystem.JDBC [database.db] [--json] [--gzip] [--out file]
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JDBC {
+    public static void main(String[] args) throws Exception {
+
+        String database = "C:/sqlite/db/CarDealership.db";
+        CarExporter.Format format = CarExporter.Format.CSV;
+        boolean gzip = false;
+        Path out = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json":
+                    format = CarExporter.Format.JSON;
+                    break;
+                case "--gzip":
+                    gzip = true;
+                    break;
+                case "--out":
+                    out = Path.of(args[++i]);
+                    break;
+                default:
+                    database = args[i];
+            }
+        }
+
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + database, 1, ConnectionPool.defaultPragmas())) {
+            CarExporter exporter = new CarExporter(pool);
+            long rows;
+            if (out == null) {
+                rows = exporter.export(System.out, format, gzip, ProgressMonitor.NONE);
+                System.out.flush();
+            } else {
+                try (OutputStream output = Files.newOutputStream(out)) {
+                    rows = exporter.export(output, format, gzip, ProgressMonitor.NONE);
+                }
+            }
+            System.err.println("Exported " + rows + " cars");
+        }
+
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * Metrics.java
+ * This class records how long the database work takes, how many rows it touched and
+ * how often it failed, for each kind of operation. The times go into a histogram with
+ * one bucket for each power of two nanoseconds, so recording is a few atomic adds and
+ * the percentiles are close enough to tell what is slow. Starting the program with
+ * -Dcardealership.metrics=false turns all of it off, then start and stop do nothing.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Metrics {
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("cardealership.metrics"));
+
+    private static final Map<Operation, Histogram> HISTOGRAMS = new EnumMap<>(Operation.class);
+
+    static {
+        for (Operation operation : Operation.values()) {
+            HISTOGRAMS.put(operation, new Histogram());
+        }
+    }
+
+    /**
+     * Name: Operation
+     *
+     * The kinds of work that are measured.
+     */
+    public enum Operation {
+        LOAD("load"),
+        PAGE("page"),
+        QUERY("query"),
+        SEARCH("search"),
+        ADD("add"),
+        EDIT("edit"),
+        DELETE("delete"),
+        BULK_DELETE("bulk delete"),
+        WRITE_BEHIND("write-behind"),
+        IMPORT("import"),
+        EXPORT("export"),
+        CHANGES("change feed"),
+        UNDO("undo/redo"),
+        ARCHIVE("archive"),
+        WRITE("other write"),
+        CONNECTION_ACQUIRE("connection acquire"),
+        FX_DELAY("fx thread delay");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Name: OperationStats
+     *
+     * A copy of the numbers of one operation, the times are in milliseconds. This is
+     * also what JMX shows for each operation.
+     */
+    public static class OperationStats {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        OperationStats(String name, long count, long errors, long rows, double meanMillis,
+                       double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.rows = rows;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-18s %,8d calls %,10d rows %,4d errors  mean %,9.2f  p50 %,9.2f  p95 %,9.2f  p99 %,9.2f  max %,9.2f ms",
+                    name, count, rows, errors, meanMillis, p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+
+    // The times of one operation, bucket i counts the times from 2^(i-1) to 2^i nanoseconds
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, long rowCount) {
+            long time = Math.max(nanos, 0);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(time));
+            count.increment();
+            totalNanos.add(time);
+            rows.add(rowCount);
+            maxNanos.accumulateAndGet(time, Math::max);
+        }
+
+        // The upper end of the bucket that has the percentile in it
+        double percentileMillis(double percentile, long total) {
+            if (total == 0) {
+                return 0;
+            }
+            long wanted = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= wanted) {
+                    return Math.min(i == 0 ? 0 : Math.pow(2, i), maxNanos.get()) / 1_000_000.0;
+                }
+            }
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        OperationStats stats(String name) {
+            long total = count.sum();
+            double mean = total == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / total;
+            return new OperationStats(name, total, errors.sum(), rows.sum(), mean, percentileMillis(0.50, total),
+                    percentileMillis(0.95, total), percentileMillis(0.99, total), maxNanos.get() / 1_000_000.0);
+        }
+
+        void reset() {
+            for (int i = 0; i < 64; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            rows.reset();
+            errors.reset();
+            maxNanos.set(0);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Name: start
+     *
+     * @return the time to give to stop, or 0 when metrics are turned off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Name: stop
+     *
+     * Records an operation that was started with start.
+     *
+     * @param operation what was done
+     * @param start     what start gave back
+     * @param rows      how many rows it read or changed
+     */
+    public static void stop(Operation operation, long start, long rows) {
+        if (ENABLED) {
+            HISTOGRAMS.get(operation).record(System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * Name: failed
+     *
+     * Records an operation that was started with start and threw an exception.
+     */
+    public static void failed(Operation operation, long start) {
+        if (ENABLED) {
+            Histogram histogram = HISTOGRAMS.get(operation);
+            histogram.errors.increment();
+            histogram.record(System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Name: record
+     *
+     * Records a time that was already measured somewhere else.
+     */
+    public static void record(Operation operation, long nanos, long rows) {
+        if (ENABLED) {
+            HISTOGRAMS.get(operation).record(nanos, rows);
+        }
+    }
+
+    /**
+     * Name: rowsOf
+     *
+     * @param result what a piece of database work gave back
+     * @return how many rows it stands for, like the size of a list of cars
+     */
+    static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof BitSet) {
+            return ((BitSet) result).cardinality();
+        }
+        if (result instanceof CarImporter.ImportResult) {
+            return ((CarImporter.ImportResult) result).getRows();
+        }
+        return result instanceof Car ? 1 : 0;
+    }
+
+    public static OperationStats getStats(Operation operation) {
+        return HISTOGRAMS.get(operation).stats(operation.toString());
+    }
+
+    /**
+     * Name: getAllStats
+     *
+     * @return the numbers of every operation that has happened at least once
+     */
+    public static List<OperationStats> getAllStats() {
+        List<OperationStats> all = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            OperationStats stats = getStats(operation);
+            if (stats.getCount() > 0) {
+                all.add(stats);
+            }
+        }
+        return all;
+    }
+
+    public static long getTotalCount() {
+        long total = 0;
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            total += histogram.count.sum();
+        }
+        return total;
+    }
+
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Name: summary
+     *
+     * @return one line for each operation that has happened
+     */
+    public static String summary() {
+        if (!ENABLED) {
+            return "Metrics are turned off (-Dcardealership.metrics=false)";
+        }
+        StringBuilder summary = new StringBuilder();
+        for (OperationStats stats : getAllStats()) {
+            summary.append(stats).append('\n');
+        }
+        return summary.length() == 0 ? "Nothing has been measured yet" : summary.toString().trim();
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * MetricsMXBean.java
+ * This interface is what JMX tools like JConsole or VisualVM show under
+ * org.nicholas.guicardealershipsystem:type=Metrics while the program is running.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.List;
+
+public interface MetricsMXBean {
+    boolean isEnabled();
+
+    /**
+     * Name: getOperations
+     *
+     * @return the count, rows, errors and times in milliseconds of every operation that has happened
+     */
+    List<Metrics.OperationStats> getOperations();
+
+    long getFxStallCount();
+
+    double getLongestFxStallMillis();
+
+    /**
+     * Name: getConnectionPools
+     *
+     * @return one line for each open database with how its connections have been used
+     */
+    List<String> getConnectionPools();
+
+    String getLogFile();
+
+    void reset();
+}
@@ -0,0 +1,246 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * NGramIndex.java
+ * This class finds the words that are close to a word the user typed, even when it has
+ * a typo in it or is only the start of the word. Every different word is kept once and
+ * split into its groups of three letters (trigrams, "silvia" has "  s", " si", "sil",
+ * "ilv", "lvi" and "via"). Each trigram has a list of the words that have it, so the
+ * words that share enough trigrams with the typed word are found without comparing it
+ * to every word, and only those are checked and scored.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class NGramIndex {
+    // Anything that is not a letter or a digit is between words, like the full text index in the database
+    private static final Pattern WORD_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    // The scores of the ways a word can match, a typo scores less than the word itself
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.8f;
+    private static final float INSIDE = 0.6f;
+    private static final float TYPO = 0.5f;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /**
+     * Name: Postings
+     *
+     * The ids of the words that have one trigram, in a plain growing array.
+     */
+    private static class Postings {
+        private int[] wordIds = new int[4];
+        private int size;
+
+        void add(int wordId) {
+            if (size == wordIds.length) {
+                wordIds = Arrays.copyOf(wordIds, size * 2);
+            }
+            wordIds[size++] = wordId;
+        }
+    }
+
+    /**
+     * Name: words
+     *
+     * @param text some text like a model name or what was typed in the search box
+     * @return the words in the text in lower case without accents, "SILVIA spec-R Aero (S15)" gives silvia, spec, r, aero and s15
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        // "Citroën" is found by "citroen" like in the full text index, which also ignores the accents
+        String plain = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String word : WORD_SPLIT.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Name: add
+     *
+     * @param word a word in lower case
+     * @return the id of the word, the same id every time it is added
+     */
+    public int add(String word) {
+        Integer id = ids.get(word);
+        if (id != null) {
+            return id;
+        }
+        int newId = words.size();
+        ids.put(word, newId);
+        words.add(word);
+        long[] grams = trigrams(word);
+        Arrays.sort(grams);
+        for (int i = 0; i < grams.length; i++) {
+            // A word like "aaaa" has the same trigram twice but is only listed once
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                postings.computeIfAbsent(grams[i], gram -> new Postings()).add(newId);
+            }
+        }
+        return newId;
+    }
+
+    public String word(int id) {
+        return words.get(id);
+    }
+
+    public int size() {
+        return words.size();
+    }
+
+    public void clear() {
+        ids.clear();
+        words.clear();
+        postings.clear();
+    }
+
+    /**
+     * Name: scores
+     *
+     * Scores every word against the typed word. Words shorter than three letters have
+     * no trigrams of their own, so they are only compared with the start of every word.
+     *
+     * @param typed a word in lower case
+     * @return the score of each word by its id, 0 for the words that do not match
+     */
+    public float[] scores(String typed) {
+        float[] scores = new float[words.size()];
+        if (typed.length() < 3) {
+            for (int id = 0; id < scores.length; id++) {
+                scores[id] = score(typed, words.get(id));
+            }
+            return scores;
+        }
+        // Count how many trigrams of the typed word each word has
+        int[] shared = new int[words.size()];
+        long[] grams = trigrams(typed);
+        for (long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                for (int i = 0; i < list.size; i++) {
+                    shared[list.wordIds[i]]++;
+                }
+            }
+        }
+        // A word that starts with the typed word has all its trigrams, one that has it
+        // inside loses the two at the start, and each typo changes up to four
+        int needed = Math.max(1, grams.length - Math.max(2, 4 * maxTypos(typed)));
+        for (int id = 0; id < shared.length; id++) {
+            if (shared[id] >= needed) {
+                scores[id] = score(typed, words.get(id));
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Name: score
+     *
+     * @return how well the word matches the typed word, from 1 for the same word to 0 for no match
+     */
+    static float score(String typed, String word) {
+        if (word.equals(typed)) {
+            return EXACT;
+        }
+        if (word.startsWith(typed)) {
+            // "silv" is a better match for "silvia" than "s" is
+            return PREFIX + (EXACT - PREFIX) * typed.length() / word.length();
+        }
+        if (typed.length() >= 3 && word.contains(typed)) {
+            return INSIDE;
+        }
+        int maxTypos = maxTypos(typed);
+        if (maxTypos == 0) {
+            return 0;
+        }
+        // The typed word can have a typo in the whole word or in the start of it while it is still being typed
+        int typos = distance(typed, word, maxTypos);
+        if (word.length() > typed.length()) {
+            typos = Math.min(typos, distance(typed, word.substring(0, typed.length()), maxTypos));
+        }
+        return typos <= maxTypos ? TYPO - 0.15f * (typos - 1) : 0;
+    }
+
+    // Short words have too few letters to tell a typo from a different word
+    private static int maxTypos(String typed) {
+        if (typed.length() < 4) {
+            return 0;
+        }
+        return typed.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Name: distance
+     *
+     * Counts the letters that have to be added, removed, changed or swapped with the one
+     * next to them to turn one word into the other.
+     *
+     * @param max the most that is counted, anything more gives back max + 1
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, twoBack[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] oldest = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = oldest;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    // The trigrams of the word with two spaces in front, so the start of a word counts for more
+    private static long[] trigrams(String word) {
+        String padded = "  " + word;
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    @Override
+    public String toString() {
+        return "NGramIndex[words=" + words.size() + ", trigrams=" + postings.size() + "]";
+    }
+}
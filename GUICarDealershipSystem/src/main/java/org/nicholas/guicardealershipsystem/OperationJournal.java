@@ -0,0 +1,518 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * OperationJournal.java
+ * This class remembers the cars as they were before they were removed or edited, so
+ * the change can be undone and then redone. Every change is one entry appended to a
+ * file next to the database, written straight into a memory-mapped copy of the file so
+ * recording it is only copying bytes, and the operating system writes it to disk even
+ * if the program crashes. Each entry has a checksum, an entry that was only half
+ * written when the program stopped is dropped the next time the file is opened.
+ *
+ * The file starts with a header that says where the entries end and how many of them
+ * are done (the cursor). Undo moves the cursor back one entry and redo moves it forward.
+ * Recording a new change after an undo throws away the entries that could be redone.
+ * Undo and redo only change a car that still has the details the journal expects, so a
+ * change someone else made in the meantime is not overwritten.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+public class OperationJournal implements AutoCloseable {
+    // How big the file is made at first
+    private static final int SEGMENT_BYTES = 1 << 20;
+    // When the file would grow past this the oldest entries are dropped
+    private static final long MAX_BYTES = Long.getLong("cardealership.journal.maxBytes", 64L << 20);
+    private static final int MAGIC = 0x43444a31;
+    private static final int FORMAT_VERSION = 2;
+    private static final int END_OFFSET = 8;
+    private static final int CURSOR_OFFSET = 16;
+    private static final int HEADER_BYTES = 32;
+    // The length and checksum before an entry and the length again after it, so it can be read backwards
+    private static final int ENTRY_OVERHEAD = 12;
+    private static final byte DELETE = 1;
+    private static final byte EDIT = 2;
+
+    private static final Logger LOG = Logger.getLogger(OperationJournal.class.getName());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer buffer;
+    private long end;
+    private long cursor;
+
+    /**
+     * Name: Entry
+     *
+     * One change in the journal with the cars before it and, for edits, after it.
+     */
+    public static class Entry {
+        private final long start;
+        private final long next;
+        private final boolean delete;
+        private final List<Car> before;
+        private final List<Car> after;
+
+        private Entry(long start, long next, boolean delete, List<Car> before, List<Car> after) {
+            this.start = start;
+            this.next = next;
+            this.delete = delete;
+            this.before = Collections.unmodifiableList(before);
+            this.after = Collections.unmodifiableList(after);
+        }
+
+        public boolean isDelete() {
+            return delete;
+        }
+
+        /**
+         * Name: getBefore
+         *
+         * @return the cars as they were before the change
+         */
+        public List<Car> getBefore() {
+            return before;
+        }
+
+        /**
+         * Name: getAfter
+         *
+         * @return the edited cars, empty for a removal
+         */
+        public List<Car> getAfter() {
+            return after;
+        }
+
+        /**
+         * Name: getIds
+         *
+         * @return the ids of the cars the change was about
+         */
+        public List<Integer> getIds() {
+            List<Integer> ids = new ArrayList<>(before.size());
+            for (Car car : before) {
+                ids.add(car.getId());
+            }
+            return ids;
+        }
+
+        /**
+         * Name: undoOperations
+         *
+         * @return what puts the cars back the way they were, removed cars are added again with their old ids
+         */
+        public List<CarOperation> undoOperations() {
+            List<CarOperation> operations = new ArrayList<>(before.size());
+            for (int i = 0; i < before.size(); i++) {
+                operations.add(delete ? CarOperation.restore(before.get(i)) : CarOperation.replace(after.get(i), before.get(i)));
+            }
+            return operations;
+        }
+
+        /**
+         * Name: redoOperations
+         *
+         * @return what makes the change again
+         */
+        public List<CarOperation> redoOperations() {
+            List<CarOperation> operations = new ArrayList<>(before.size());
+            if (delete) {
+                for (Car car : before) {
+                    operations.add(CarOperation.deleteUnchanged(car));
+                }
+            } else {
+                for (int i = 0; i < after.size(); i++) {
+                    operations.add(CarOperation.replace(before.get(i), after.get(i)));
+                }
+            }
+            return operations;
+        }
+
+        @Override
+        public String toString() {
+            String cars = before.size() == 1 ? "car " + before.get(0).getId() : String.format("%,d cars", before.size());
+            return (delete ? "removing " : "editing ") + cars;
+        }
+    }
+
+    /**
+     * Name: open
+     *
+     * Opens the journal file, or makes it if it is not there. Only one copy of the
+     * program can have the file open.
+     *
+     * @param file where the journal is kept
+     * @return the journal
+     * @throws IOException if the file can not be used, like when another copy of the program has it open
+     */
+    public static OperationJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new IOException(file + " is being used by another copy of the program");
+            }
+            return new OperationJournal(file, channel, lock);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private OperationJournal(Path file, FileChannel channel, FileLock lock) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.lock = lock;
+        long size = channel.size();
+        map(Math.max(SEGMENT_BYTES, size));
+        if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            end = HEADER_BYTES;
+            cursor = HEADER_BYTES;
+            writeHeader();
+        } else {
+            recover(buffer.getLong(END_OFFSET), buffer.getLong(CURSOR_OFFSET));
+        }
+    }
+
+    private void map(long size) throws IOException {
+        // Mapping past the end of the file makes the file that big
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Keeps the entries up to the first one that is not whole, and a cursor that is on an entry
+    private void recover(long savedEnd, long savedCursor) {
+        long position = HEADER_BYTES;
+        long validCursor = HEADER_BYTES;
+        while (position < savedEnd) {
+            long next = checkEntry(position, savedEnd);
+            if (next < 0) {
+                LOG.warning(String.format("Dropping the end of %s from byte %,d, it was not written completely", file, position));
+                break;
+            }
+            position = next;
+            if (position <= savedCursor) {
+                validCursor = position;
+            }
+        }
+        end = position;
+        cursor = validCursor;
+        writeHeader();
+    }
+
+    // Returns where the entry after this one starts, or -1 if this one is broken
+    private long checkEntry(long start, long limit) {
+        if (start + ENTRY_OVERHEAD > limit) {
+            return -1;
+        }
+        int length = buffer.getInt((int) start);
+        long next = start + ENTRY_OVERHEAD + (long) length;
+        if (length <= 0 || next > limit || buffer.getInt((int) next - 4) != length) {
+            return -1;
+        }
+        return checksum(start + 8, length) == buffer.getInt((int) start + 4) ? next : -1;
+    }
+
+    private int checksum(long start, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice((int) start, length));
+        return (int) crc.getValue();
+    }
+
+    private void writeHeader() {
+        // The end is written first, if the program stops in between the new entry can only be redone
+        buffer.putLong(END_OFFSET, end);
+        buffer.putLong(CURSOR_OFFSET, cursor);
+    }
+
+    /**
+     * Name: recordDelete
+     *
+     * @param cars the cars that were removed, as they were just before
+     */
+    public synchronized void recordDelete(Collection<Car> cars) {
+        if (!cars.isEmpty()) {
+            append(DELETE, new ArrayList<>(cars), List.of());
+        }
+    }
+
+    /**
+     * Name: recordEdit
+     *
+     * @param before the cars as they were before the edit
+     * @param after  the same cars with the new details, in the same order
+     */
+    public synchronized void recordEdit(List<Car> before, List<Car> after) {
+        if (before.size() != after.size()) {
+            throw new IllegalArgumentException("Every edited car needs its details from before and after");
+        }
+        if (!before.isEmpty()) {
+            append(EDIT, before, after);
+        }
+    }
+
+    private void append(byte type, List<Car> before, List<Car> after) {
+        // Anything after the cursor was undone, it can not be redone after a new change
+        long start = cursor;
+        // The most the entry can take, the real size is known once it is written
+        int payload = 5;
+        for (Car car : before) {
+            payload += encodedSize(car);
+        }
+        for (Car car : after) {
+            payload += encodedSize(car);
+        }
+        long needed = start + ENTRY_OVERHEAD + (long) payload;
+        if (needed > MAX_BYTES && start > HEADER_BYTES) {
+            dropOldest(ENTRY_OVERHEAD + (long) payload);
+            start = cursor;
+            needed = start + ENTRY_OVERHEAD + (long) payload;
+        }
+        try {
+            ensureCapacity(needed);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not make " + file + " bigger", e);
+        }
+        int position = (int) start + 8;
+        buffer.put(position, type);
+        buffer.putInt(position + 1, before.size());
+        position += 5;
+        for (int i = 0; i < before.size(); i++) {
+            position = writeCar(position, before.get(i));
+            if (type == EDIT) {
+                position = writeCar(position, after.get(i));
+            }
+        }
+        int length = position - ((int) start + 8);
+        buffer.putInt((int) start, length);
+        buffer.putInt(position, length);
+        buffer.putInt((int) start + 4, checksum(start + 8, length));
+        end = position + 4;
+        cursor = end;
+        writeHeader();
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        if (needed > buffer.capacity()) {
+            // Doubled so a big removal only makes the file bigger a few times
+            long size = buffer.capacity();
+            while (size < needed) {
+                size = Math.min(size * 2, Integer.MAX_VALUE);
+            }
+            if (needed > Integer.MAX_VALUE) {
+                throw new IOException("The change is too big for the undo journal");
+            }
+            map(size);
+        }
+    }
+
+    // Moves the newest entries to the front of the file so there is room for one more entry
+    private void dropOldest(long room) {
+        long keepFrom = HEADER_BYTES;
+        while (keepFrom < cursor && cursor - keepFrom + room > MAX_BYTES / 2) {
+            keepFrom = checkEntry(keepFrom, end);
+        }
+        int kept = (int) (cursor - keepFrom);
+        buffer.put(HEADER_BYTES, buffer, (int) keepFrom, kept);
+        end = HEADER_BYTES + kept;
+        cursor = end;
+        writeHeader();
+        LOG.info(String.format("Dropped the oldest undo entries of %s to keep it under %,d bytes", file, MAX_BYTES));
+    }
+
+    private static int encodedSize(Car car) {
+        return 21 + stringSize(car.getMake()) + stringSize(car.getModel()) + stringSize(car.getColor())
+                + stringSize(car.getEngine()) + stringSize(car.getTransmissionType());
+    }
+
+    private static int stringSize(String text) {
+        // The length is written as four bytes, the text as UTF-8 which is at most three bytes a char
+        if (text == null) {
+            return 4;
+        }
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return 4 + bytes;
+    }
+
+    private int writeCar(int position, Car car) {
+        buffer.putInt(position, car.getId());
+        buffer.putInt(position + 4, car.getYear());
+        buffer.putDouble(position + 8, car.getPrice());
+        buffer.put(position + 16, (byte) (car.isSold() ? 1 : 0));
+        buffer.putInt(position + 17, car.getVersion());
+        position += 21;
+        position = writeString(position, car.getMake());
+        position = writeString(position, car.getModel());
+        position = writeString(position, car.getColor());
+        position = writeString(position, car.getEngine());
+        return writeString(position, car.getTransmissionType());
+    }
+
+    // A missing text is written as the length -1
+    private int writeString(int position, String text) {
+        if (text == null) {
+            buffer.putInt(position, -1);
+            return position + 4;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(position, bytes.length);
+        buffer.put(position + 4, bytes);
+        return position + 4 + bytes.length;
+    }
+
+    private Entry readEntry(long start) {
+        int length = buffer.getInt((int) start);
+        int position = (int) start + 8;
+        boolean delete = buffer.get(position) == DELETE;
+        int count = buffer.getInt(position + 1);
+        position += 5;
+        List<Car> before = new ArrayList<>(count);
+        List<Car> after = new ArrayList<>(delete ? 0 : count);
+        int[] next = {position};
+        for (int i = 0; i < count; i++) {
+            before.add(readCar(next));
+            if (!delete) {
+                after.add(readCar(next));
+            }
+        }
+        return new Entry(start, start + ENTRY_OVERHEAD + length, delete, before, after);
+    }
+
+    private Car readCar(int[] position) {
+        int start = position[0];
+        int id = buffer.getInt(start);
+        int year = buffer.getInt(start + 4);
+        double price = buffer.getDouble(start + 8);
+        boolean sold = buffer.get(start + 16) == 1;
+        int version = buffer.getInt(start + 17);
+        position[0] = start + 21;
+        Car car = new Car(id, year, readString(position), readString(position), readString(position),
+                readString(position), readString(position), price);
+        car.setSold(sold);
+        car.setVersion(version);
+        return car;
+    }
+
+    private String readString(int[] position) {
+        int length = buffer.getInt(position[0]);
+        position[0] += 4;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position[0], bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Name: peekUndo
+     *
+     * @return the newest change that is not undone, or null if there is nothing to undo
+     */
+    public synchronized Entry peekUndo() {
+        if (cursor == HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt((int) cursor - 4);
+        return readEntry(cursor - ENTRY_OVERHEAD - length);
+    }
+
+    /**
+     * Name: peekRedo
+     *
+     * @return the change that was undone last, or null if there is nothing to redo
+     */
+    public synchronized Entry peekRedo() {
+        return cursor == end ? null : readEntry(cursor);
+    }
+
+    /**
+     * Name: undone
+     *
+     * Moves the cursor back over the entry once its undo was saved to the database.
+     *
+     * @throws IllegalStateException if another change was recorded or undone while this one was being undone
+     */
+    public synchronized void undone(Entry entry) {
+        if (entry.next != cursor) {
+            throw new IllegalStateException("The undo journal changed while " + entry + " was being undone");
+        }
+        cursor = entry.start;
+        writeHeader();
+    }
+
+    /**
+     * Name: redone
+     *
+     * Moves the cursor forward over the entry once its redo was saved to the database.
+     *
+     * @throws IllegalStateException if another change was recorded or redone while this one was being redone
+     */
+    public synchronized void redone(Entry entry) {
+        if (entry.start != cursor) {
+            throw new IllegalStateException("The undo journal changed while " + entry + " was being redone");
+        }
+        cursor = entry.next;
+        writeHeader();
+    }
+
+    /**
+     * Name: moveBack
+     *
+     * Puts the cursor back where it was before undone or redone, used when saving the change failed after all.
+     */
+    public synchronized void moveBack(Entry entry, boolean undo) {
+        if (cursor == (undo ? entry.start : entry.next)) {
+            cursor = undo ? entry.next : entry.start;
+            writeHeader();
+        }
+    }
+
+    public synchronized boolean canUndo() {
+        return cursor > HEADER_BYTES;
+    }
+
+    public synchronized boolean canRedo() {
+        return cursor < end;
+    }
+
+    /**
+     * Name: close
+     *
+     * Makes sure everything is on the disk and lets another copy of the program use the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        lock.release();
+        channel.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("OperationJournal[%s, %,d bytes used, %s]", file.getFileName(), end,
+                canRedo() ? "can redo" : "nothing to redo");
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * PagedCarList.java
+ * This class is the list behind the TableView when the database is too big to read
+ * into memory all at once. Cars are read a page at a time as the user scrolls to them,
+ * only the most recently used pages are kept, and the page after the one being looked at
+ * is read in the background so it is usually ready before the user gets there. A row
+ * whose page has not been read yet is shown empty and filled in when the page arrives,
+ * so the table never waits for the database. Everything in here except the database
+ * reads is only used on the JavaFX thread.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PagedCarList extends ObservableListBase<Car> {
+    private static final Logger LOG = Logger.getLogger(PagedCarList.class.getName());
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_PAGES = 50;
+    // How many page starts are remembered, enough to have one close to any page of a big table
+    private static final int MAX_PAGE_STARTS = 1024;
+
+    private final CarService carService;
+    private final int pageSize;
+    // The pages that are in memory, the least recently used page is dropped when it is full
+    private final Map<Integer, List<Car>> pages;
+    // For each page that we know about, the id that the page starts after
+    private final TreeMap<Integer, Integer> pageStartsAfter = new TreeMap<>();
+    private final Set<Integer> reading = new HashSet<>();
+    // The pages that had empty rows shown for them, the table is told when they arrive
+    private final Set<Integer> shownEmpty = new HashSet<>();
+    private int size;
+    // Goes up on every reload so pages that were read before the reload are thrown away
+    private int generation;
+
+    public PagedCarList(CarService carService) {
+        this(carService, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Name: PagedCarList
+     *
+     * @param carService the service used to read the pages in the background
+     * @param pageSize   how many cars are read at once
+     * @param maxPages   how many pages are kept in memory
+     */
+    public PagedCarList(CarService carService, int pageSize, int maxPages) {
+        this.carService = carService;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Car>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Name: reload
+     *
+     * Throws away every page and starts again from the first page. The size is set
+     * from the first page right away so the table can show it, and the real count is
+     * filled in when the database has finished counting.
+     *
+     * @return the task reading the first page
+     */
+    public Task<List<Car>> reload() {
+        int reloadGeneration = ++generation;
+        pages.clear();
+        pageStartsAfter.clear();
+        reading.clear();
+        shownEmpty.clear();
+        pageStartsAfter.put(0, Integer.MIN_VALUE);
+
+        Task<List<Car>> task = carService.read(Metrics.Operation.PAGE, monitor -> carService.getRepository().findPage(Integer.MIN_VALUE, pageSize));
+        task.setOnSucceeded(event -> {
+            if (reloadGeneration != generation) {
+                return;
+            }
+            List<Car> firstPage = task.getValue();
+            addPage(0, firstPage);
+            replaceSize(firstPage.size());
+            if (firstPage.size() == pageSize) {
+                countInBackground(reloadGeneration);
+            }
+        });
+        task.setOnFailed(event -> LOG.log(Level.SEVERE, "Could not read the first page", task.getException()));
+        return task;
+    }
+
+    private void countInBackground(int countGeneration) {
+        Task<Integer> task = carService.read(monitor -> carService.getRepository().count());
+        task.setOnSucceeded(event -> {
+            if (countGeneration == generation) {
+                resize(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> LOG.log(Level.WARNING, "Could not count the cars", task.getException()));
+    }
+
+    @Override
+    public Car get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+        }
+        int pageNumber = index / pageSize;
+        List<Car> page = pages.get(pageNumber);
+        if (page == null) {
+            // The user jumped past what was prefetched, the row stays empty until its page is read
+            shownEmpty.add(pageNumber);
+            read(pageNumber);
+            return null;
+        }
+        read(pageNumber + 1);
+        int offset = index % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Name: read
+     *
+     * Reads the page in the background if it is not in memory or being read already.
+     */
+    private void read(int pageNumber) {
+        if (pageNumber * pageSize >= size || pages.containsKey(pageNumber) || !reading.add(pageNumber)) {
+            return;
+        }
+        // The closest pages whose start is known, page 0 is always known
+        Map.Entry<Integer, Integer> before = pageStartsAfter.floorEntry(pageNumber);
+        Map.Entry<Integer, Integer> after = pageStartsAfter.ceilingEntry(pageNumber);
+        int readGeneration = generation;
+        Task<List<Car>> task = carService.read(Metrics.Operation.PAGE, monitor -> readPage(pageNumber, before, after));
+        task.setOnSucceeded(event -> {
+            if (readGeneration == generation) {
+                reading.remove(pageNumber);
+                addPage(pageNumber, task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (readGeneration == generation) {
+                reading.remove(pageNumber);
+            }
+            LOG.log(Level.WARNING, "Could not read page " + pageNumber, task.getException());
+        });
+    }
+
+    // Runs on a reader thread, so it only uses the page starts it was given
+    private List<Car> readPage(int pageNumber, Map.Entry<Integer, Integer> before, Map.Entry<Integer, Integer> after) throws SQLException {
+        CarRepository repository = carService.getRepository();
+        int pagesBefore = pageNumber - before.getKey();
+        int afterId;
+        if (pagesBefore == 0) {
+            afterId = before.getValue();
+        } else if (after != null && after.getKey() - pageNumber < pagesBefore) {
+            // The page starts after the car that is that many cars before the known page start
+            afterId = repository.findIdBefore(after.getValue(), (after.getKey() - pageNumber) * pageSize);
+        } else {
+            // The page starts after the last car of the page before it
+            afterId = repository.findIdAfter(before.getValue(), pagesBefore * pageSize - 1);
+        }
+        return repository.findPage(afterId, pageSize);
+    }
+
+    private void addPage(int pageNumber, List<Car> page) {
+        pages.put(pageNumber, page);
+        if (!page.isEmpty()) {
+            rememberPageStart(pageNumber + 1, page.get(page.size() - 1).getId());
+        }
+        if (shownEmpty.remove(pageNumber)) {
+            // The rows of the page were shown empty, so the table has to show them again
+            int from = pageNumber * pageSize;
+            int to = Math.min(size, from + pageSize);
+            if (from < to) {
+                beginChange();
+                nextReplace(from, to, Collections.nCopies(to - from, (Car) null));
+                endChange();
+            }
+        }
+    }
+
+    private void rememberPageStart(int pageNumber, int afterId) {
+        pageStartsAfter.putIfAbsent(pageNumber, afterId);
+        if (pageStartsAfter.size() > MAX_PAGE_STARTS) {
+            // Every other one is dropped so there is still one close to every page, the first page is kept
+            Iterator<Integer> pageNumbers = pageStartsAfter.keySet().iterator();
+            pageNumbers.next();
+            while (pageNumbers.hasNext()) {
+                pageNumbers.next();
+                if (pageNumbers.hasNext()) {
+                    pageNumbers.next();
+                    pageNumbers.remove();
+                }
+            }
+        }
+    }
+
+    // Tells the table that every row has changed
+    private void replaceSize(int newSize) {
+        beginChange();
+        if (size > 0) {
+            nextRemove(0, Collections.nCopies(size, (Car) null));
+        }
+        size = newSize;
+        if (newSize > 0) {
+            nextAdd(0, newSize);
+        }
+        endChange();
+    }
+
+    // Tells the table that rows were added or removed at the end
+    private void resize(int newSize) {
+        if (newSize == size) {
+            return;
+        }
+        beginChange();
+        if (newSize > size) {
+            nextAdd(size, newSize);
+        } else {
+            nextRemove(newSize, Collections.nCopies(size - newSize, (Car) null));
+        }
+        size = newSize;
+        endChange();
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * PooledConnection.java
+ * This class is a connection that has been borrowed from the ConnectionPool. Closing it
+ * gives it back to the pool instead of closing the real database connection. It also
+ * keeps the prepared statements that were used on it so they do not have to be parsed again.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PooledConnection implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(PooledConnection.class.getName());
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    // False once it was given back, so closing it twice does not put it in the pool twice
+    private final AtomicBoolean inUse = new AtomicBoolean();
+    // Least recently used statements are closed once the cache is full
+    private final Map<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > STATEMENT_CACHE_SIZE) {
+                closeStatement(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Name: TransactionWork
+     *
+     * The database work that is run inside of a transaction.
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T run() throws SQLException;
+    }
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    // Called by the pool each time it gives this connection out
+    void borrowed() {
+        inUse.set(true);
+    }
+
+    /**
+     * Name: getConnection
+     *
+     * @return the real database connection, used for transactions
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Name: prepare
+     *
+     * Gives back a cached prepared statement for the sql, or prepares it the first time.
+     * The statement belongs to this connection and must NOT be closed by the caller,
+     * but any ResultSet that comes from it should be.
+     *
+     * @param sql the sql with ? for the parameters
+     * @return a prepared statement with its parameters cleared
+     * @throws SQLException if the sql could not be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            pool.recordStatementCache(true);
+            statement.clearParameters();
+            statement.clearBatch();
+            return statement;
+        }
+        pool.recordStatementCache(false);
+        statement = connection.prepareStatement(sql);
+        statementCache.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Name: inTransaction
+     *
+     * Runs the work as one transaction. Everything is committed together at the end,
+     * or if anything fails all of it is rolled back and the exception is thrown again.
+     *
+     * @param work the database work to run
+     * @return what the work gave back
+     * @throws SQLException if the work or the commit failed
+     */
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Name: close
+     *
+     * Gives the connection back to the pool. Closing it again does nothing.
+     */
+    @Override
+    public void close() {
+        if (inUse.compareAndSet(true, false)) {
+            pool.release(this);
+        }
+    }
+
+    void closeQuietly() {
+        for (PreparedStatement statement : statementCache.values()) {
+            closeStatement(statement);
+        }
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Could not close a connection", e);
+        }
+    }
+
+    private static void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Could not close a statement", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * ProgressMonitor.java
+ * This interface is how long running database work reports how far along it is
+ * and finds out if the user has asked for it to be cancelled. It does not depend on
+ * JavaFX so the same database code can be used without the GUI.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+public interface ProgressMonitor {
+    // Used when nobody is watching the progress and the work can not be cancelled
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void progress(long done, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Name: progress
+     *
+     * @param done  how much of the work has been finished
+     * @param total how much work there is in total, or -1 if it is not known
+     */
+    void progress(long done, long total);
+
+    /**
+     * Name: message
+     *
+     * @param message a short line about what is happening, like how fast rows are being read
+     */
+    default void message(String message) {
+    }
+
+    /**
+     * Name: isCancelled
+     *
+     * @return true when the work should stop as soon as possible
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,147 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * SchemaMigrator.java
+ * This class brings the database up to date with what the program needs, like
+ * the indexes that the filters use. Which changes have been made already is saved
+ * in the database with PRAGMA user_version, so each change only runs once.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class SchemaMigrator {
+    // Each entry is one version of the database, the sql in it is run in one transaction
+    private static final String[][] MIGRATIONS = {
+            // 1: the Cars table and the indexes for the year, make, model and color filters
+            {
+                    "CREATE TABLE IF NOT EXISTS Cars (id INTEGER PRIMARY KEY, year INTEGER, make TEXT, model TEXT, color TEXT, engine TEXT, transmission TEXT, price REAL, sold INTEGER NOT NULL DEFAULT 0)",
+                    "CREATE INDEX IF NOT EXISTS idx_cars_make_model ON Cars(make COLLATE NOCASE, model COLLATE NOCASE)",
+                    "CREATE INDEX IF NOT EXISTS idx_cars_year ON Cars(year)",
+                    "CREATE INDEX IF NOT EXISTS idx_cars_color ON Cars(color COLLATE NOCASE)"
+            },
+            // 2: the indexes for the year and price ranges, (year, price) also covers the year filter
+            {
+                    "CREATE INDEX IF NOT EXISTS idx_cars_year_price ON Cars(year, price)",
+                    "CREATE INDEX IF NOT EXISTS idx_cars_price ON Cars(price)",
+                    "DROP INDEX IF EXISTS idx_cars_year"
+            },
+            // 3: a version on every car so an edit can tell if someone else changed the car first,
+            // and the CarChanges log that the triggers fill so other copies of the program can
+            // read what changed since they last looked instead of reading every car again
+            {
+                    "ALTER TABLE Cars ADD COLUMN version INTEGER NOT NULL DEFAULT 0",
+                    "ALTER TABLE Cars ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0",
+                    "CREATE TABLE IF NOT EXISTS CarChanges (seq INTEGER PRIMARY KEY AUTOINCREMENT, car_id INTEGER NOT NULL)",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_insert AFTER INSERT ON Cars BEGIN INSERT INTO CarChanges (car_id) VALUES (NEW.id); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_update AFTER UPDATE ON Cars BEGIN INSERT INTO CarChanges (car_id) VALUES (NEW.id); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_delete AFTER DELETE ON Cars BEGIN INSERT INTO CarChanges (car_id) VALUES (OLD.id); END"
+            },
+            // 4: when each car was sold, and the CarsArchive table that old sales are moved to so the
+            // Cars table only has the stock. When cars sold before this were sold is not known, so they
+            // get the time of the migration and are archived once they have been sold that long. The
+            // change log trigger is off while they are set so it does not log every sold car.
+            {
+                    "ALTER TABLE Cars ADD COLUMN sold_at INTEGER",
+                    "DROP TRIGGER IF EXISTS trg_cars_update",
+                    "UPDATE Cars SET sold_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000 WHERE sold = 1",
+                    "CREATE TRIGGER trg_cars_update AFTER UPDATE ON Cars BEGIN INSERT INTO CarChanges (car_id) VALUES (NEW.id); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_sold AFTER UPDATE OF sold ON Cars WHEN NEW.sold = 1 AND OLD.sold = 0 BEGIN UPDATE Cars SET sold_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000 WHERE id = NEW.id; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_unsold AFTER UPDATE OF sold ON Cars WHEN NEW.sold = 0 AND OLD.sold = 1 BEGIN UPDATE Cars SET sold_at = NULL WHERE id = NEW.id; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_sold_insert AFTER INSERT ON Cars WHEN NEW.sold = 1 AND NEW.sold_at IS NULL BEGIN UPDATE Cars SET sold_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000 WHERE id = NEW.id; END",
+                    "CREATE INDEX IF NOT EXISTS idx_cars_sold_at ON Cars(sold_at) WHERE sold = 1",
+                    "CREATE TABLE IF NOT EXISTS CarsArchive (id INTEGER PRIMARY KEY, year INTEGER, make TEXT, model TEXT, color TEXT, engine TEXT, transmission TEXT, price REAL, sold INTEGER NOT NULL DEFAULT 0, "
+                            + "version INTEGER NOT NULL DEFAULT 0, updated_at INTEGER NOT NULL DEFAULT 0, sold_at INTEGER, archived_at INTEGER NOT NULL)",
+                    "CREATE INDEX IF NOT EXISTS idx_archive_make_model ON CarsArchive(make COLLATE NOCASE, model COLLATE NOCASE)"
+            },
+            // 5: the CarsSearch full text index of the words in the make, model, color, engine and
+            // transmission, so the search box finds "s15" in "SILVIA spec-R Aero (S15)". It only keeps
+            // the index, the text is read from Cars, and the triggers keep it the same as Cars. The
+            // prefix indexes make a search for the start of a word as fast as for a whole word.
+            {
+                    "CREATE VIRTUAL TABLE IF NOT EXISTS CarsSearch USING fts5(make, model, color, engine, transmission, content='Cars', content_rowid='id', "
+                            + "tokenize='unicode61 remove_diacritics 2', prefix='2 3')",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_search_insert AFTER INSERT ON Cars BEGIN "
+                            + "INSERT INTO CarsSearch (rowid, make, model, color, engine, transmission) VALUES (NEW.id, NEW.make, NEW.model, NEW.color, NEW.engine, NEW.transmission); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_search_delete AFTER DELETE ON Cars BEGIN "
+                            + "INSERT INTO CarsSearch (CarsSearch, rowid, make, model, color, engine, transmission) VALUES ('delete', OLD.id, OLD.make, OLD.model, OLD.color, OLD.engine, OLD.transmission); END",
+                    // Selling or repricing a car does not change its words, so only a change to the text is indexed again
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_search_update AFTER UPDATE OF make, model, color, engine, transmission ON Cars "
+                            + "WHEN OLD.make IS NOT NEW.make OR OLD.model IS NOT NEW.model OR OLD.color IS NOT NEW.color OR OLD.engine IS NOT NEW.engine OR OLD.transmission IS NOT NEW.transmission BEGIN "
+                            + "INSERT INTO CarsSearch (CarsSearch, rowid, make, model, color, engine, transmission) VALUES ('delete', OLD.id, OLD.make, OLD.model, OLD.color, OLD.engine, OLD.transmission); "
+                            + "INSERT INTO CarsSearch (rowid, make, model, color, engine, transmission) VALUES (NEW.id, NEW.make, NEW.model, NEW.color, NEW.engine, NEW.transmission); END",
+                    "INSERT INTO CarsSearch (CarsSearch) VALUES ('rebuild')"
+            },
+            // 6: the CarIds table keeps the highest id ever given to a car and only goes up, so a new car
+            // never gets the id of a car that was removed or archived and undoing a removal can always put
+            // the car back with its id. It starts above every id in Cars, CarsArchive and the change log.
+            {
+                    "CREATE TABLE IF NOT EXISTS CarIds (last_id INTEGER NOT NULL)",
+                    "INSERT INTO CarIds (last_id) SELECT MAX(IFNULL((SELECT MAX(id) FROM Cars), 0), IFNULL((SELECT MAX(id) FROM CarsArchive), 0), "
+                            + "IFNULL((SELECT MAX(car_id) FROM CarChanges), 0))",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cars_ids AFTER INSERT ON Cars WHEN NEW.id > (SELECT last_id FROM CarIds) BEGIN "
+                            + "UPDATE CarIds SET last_id = NEW.id; END"
+            }
+    };
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Name: getLatestVersion
+     *
+     * @return the version the database will be at after migrate
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    /**
+     * Name: migrate
+     *
+     * Runs every change that has not been made to this database yet.
+     *
+     * @param connection the connection to the database
+     * @return how many changes were run
+     * @throws SQLException if one of the changes failed, that change is rolled back
+     */
+    public static int migrate(PooledConnection connection) throws SQLException {
+        Connection raw = connection.getConnection();
+        int version = getVersion(raw);
+        int applied = 0;
+        while (version < MIGRATIONS.length) {
+            String[] migration = MIGRATIONS[version];
+            int nextVersion = version + 1;
+            connection.inTransaction(() -> {
+                try (Statement statement = raw.createStatement()) {
+                    for (String sql : migration) {
+                        statement.execute(sql);
+                    }
+                    statement.execute("PRAGMA user_version = " + nextVersion);
+                }
+                return null;
+            });
+            version = nextVersion;
+            applied++;
+        }
+        if (applied > 0) {
+            // Lets the query planner know about the new indexes
+            try (Statement statement = raw.createStatement()) {
+                statement.execute("PRAGMA optimize");
+            }
+        }
+        return applied;
+    }
+
+    private static int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+}
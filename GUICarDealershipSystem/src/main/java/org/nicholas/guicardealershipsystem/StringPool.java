@@ -0,0 +1,47 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * StringPool.java
+ * This class keeps one copy of each text value like "Toyota" or "Automatic", so the cars
+ * read from a big database share a few hundred strings instead of every car having five
+ * of its own. Only the first MAX_SIZE different values are kept, so a column that is
+ * different for every car can not fill it up. It can be used by more than one thread.
+ * Starting the program with -Dcardealership.compactStrings=false turns it off.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StringPool {
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("cardealership.compactStrings"));
+    private static final int MAX_SIZE = 1 << 16;
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Name: get
+     *
+     * @param value the text that was read
+     * @return the copy of the text that is already kept, or the text itself
+     */
+    public String get(String value) {
+        if (!ENABLED || value == null) {
+            return value;
+        }
+        String kept = values.get(value);
+        if (kept != null) {
+            return kept;
+        }
+        if (values.size() >= MAX_SIZE) {
+            return value;
+        }
+        kept = values.putIfAbsent(value, value);
+        return kept == null ? value : kept;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
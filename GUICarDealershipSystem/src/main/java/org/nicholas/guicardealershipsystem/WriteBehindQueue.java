@@ -0,0 +1,274 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * WriteBehindQueue.java
+ * This class saves edited cars later instead of right away. The car in the table is
+ * changed as soon as the user saves it, and a copy goes into this queue. If the same
+ * car is edited again before it is written only the newest copy is kept. The queue is
+ * written on the database writer thread in one transaction, so twenty repriced cars
+ * cost one commit instead of twenty. Nothing waits longer than the max delay, and
+ * closing the queue writes whatever is left. Only one batch is written at a time, and
+ * the edits made while it is written are taken once it is saved, so they carry the
+ * version it was saved with. An edited car that someone else saved first is not
+ * written, the listener is told about it with a CarConflictException.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class WriteBehindQueue implements AutoCloseable {
+    // The longest an edit waits before it is written
+    public static final long DEFAULT_MAX_DELAY_MILLIS = Long.getLong("cardealership.writeBehind.delayMillis", 500);
+    // Writing starts right away once this many cars are waiting
+    public static final int DEFAULT_MAX_BATCH = 500;
+
+    private static final Listener NO_LISTENER = new Listener() {
+        @Override
+        public void saved(List<Car> cars) {
+        }
+
+        @Override
+        public void failed(List<Car> cars, Exception exception) {
+        }
+    };
+
+    private final CarService carService;
+    private final long maxDelayMillis;
+    private final int maxBatch;
+    private final ScheduledExecutorService timer;
+    // The newest copy of each edited car that has not been handed to the writer yet, by id
+    private final Map<Integer, Car> pending = new LinkedHashMap<>();
+    private final Map<Integer, State> states = new HashMap<>();
+    private volatile Listener listener = NO_LISTENER;
+    private boolean flushScheduled;
+    // True while a batch is on the writer thread
+    private boolean writing;
+    private long submitted;
+    private long coalesced;
+    private long batches;
+
+    /**
+     * Name: State
+     *
+     * PENDING cars have not been written yet, FAILED cars could not be written.
+     */
+    public enum State {
+        PENDING, FAILED
+    }
+
+    /**
+     * Name: Listener
+     *
+     * Is told when cars were written or could not be written. It is called on the
+     * database writer thread. The saved cars have the version they have in the database now.
+     */
+    public interface Listener {
+        void saved(List<Car> cars);
+
+        void failed(List<Car> cars, Exception exception);
+    }
+
+    public WriteBehindQueue(CarService carService) {
+        this(carService, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * Name: WriteBehindQueue
+     *
+     * @param carService     the service whose writer thread writes the cars
+     * @param maxDelayMillis the longest an edit waits before it is written
+     * @param maxBatch       how many waiting cars start a write right away
+     */
+    public WriteBehindQueue(CarService carService, long maxDelayMillis, int maxBatch) {
+        this.carService = carService;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxBatch = maxBatch;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "car-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Name: submit
+     *
+     * Puts a copy of the car in the queue, replacing an older edit of the same car.
+     *
+     * @param car the car with its new details
+     */
+    public synchronized void submit(Car car) {
+        submitted++;
+        if (pending.put(car.getId(), car.withId(car.getId())) != null) {
+            coalesced++;
+        }
+        states.put(car.getId(), State.PENDING);
+        if (pending.size() >= maxBatch) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            timer.schedule(this::flush, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Name: flush
+     *
+     * Hands every waiting car to the writer thread now as one batch.
+     */
+    public void flush() {
+        List<Car> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            // The batch that is being written takes the waiting cars along when it is done
+            if (writing || pending.isEmpty()) {
+                return;
+            }
+            batch = takeBatch();
+            writing = true;
+        }
+        try {
+            carService.writeLater(() -> writeInOrder(batch));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                writing = false;
+            }
+            throw e;
+        }
+    }
+
+    private List<Car> takeBatch() {
+        List<Car> batch = new ArrayList<>(pending.values());
+        pending.clear();
+        batches++;
+        return batch;
+    }
+
+    // Runs on the writer thread, the cars edited while a batch was written are written right after it
+    private void writeInOrder(List<Car> batch) {
+        try {
+            while (batch != null) {
+                write(batch);
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        writing = false;
+                        batch = null;
+                    } else {
+                        batch = takeBatch();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                writing = false;
+            }
+            throw e;
+        }
+    }
+
+    private void write(List<Car> batch) {
+        long start = Metrics.start();
+        try {
+            carService.getRepository().updateAll(batch);
+            Metrics.stop(Metrics.Operation.WRITE_BEHIND, start, batch.size());
+        } catch (CarConflictException e) {
+            // The other cars were still saved, the ones someone else changed are dropped
+            Metrics.stop(Metrics.Operation.WRITE_BEHIND, start, batch.size() - e.getIds().size());
+            Set<Integer> conflicts = new HashSet<>(e.getIds());
+            List<Car> saved = new ArrayList<>(batch.size());
+            List<Car> failed = new ArrayList<>(conflicts.size());
+            for (Car car : batch) {
+                if (conflicts.contains(car.getId())) {
+                    failed.add(car);
+                } else {
+                    saved.add(car);
+                }
+            }
+            setStates(saved, null);
+            setStates(failed, null);
+            if (!saved.isEmpty()) {
+                listener.saved(saved);
+            }
+            listener.failed(failed, e);
+            return;
+        } catch (Exception e) {
+            Metrics.failed(Metrics.Operation.WRITE_BEHIND, start);
+            setStates(batch, State.FAILED);
+            listener.failed(batch, e);
+            return;
+        }
+        setStates(batch, null);
+        listener.saved(batch);
+    }
+
+    private synchronized void setStates(List<Car> batch, State state) {
+        for (Car car : batch) {
+            // A newer edit of the car is already waiting, so it stays pending
+            Car newer = pending.get(car.getId());
+            if (newer != null) {
+                if (state == null) {
+                    // It was read before this save, but it is an edit on top of it
+                    newer.setVersion(car.getVersion());
+                }
+                continue;
+            }
+            if (state == null) {
+                states.remove(car.getId());
+            } else {
+                states.put(car.getId(), state);
+            }
+        }
+    }
+
+    /**
+     * Name: getState
+     *
+     * @param id the id of a car
+     * @return PENDING or FAILED, or null if the car has nothing waiting to be written
+     */
+    public synchronized State getState(int id) {
+        return states.get(id);
+    }
+
+    /**
+     * Name: getUnsavedCount
+     *
+     * @return how many cars are waiting to be written or failed to be written
+     */
+    public synchronized int getUnsavedCount() {
+        return states.size();
+    }
+
+    /**
+     * Name: close
+     *
+     * Stops the timer and hands what is still waiting to the writer thread, which
+     * writes it before the car service finishes closing.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        flush();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WriteBehindQueue[submitted=" + submitted + ", coalesced=" + coalesced + ", batches=" + batches
+                + ", unsaved=" + states.size() + "]";
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Nicholas Dhannie
+ * CEN 3024C - Software Development 1
+ * October 17, 2026
+ * InventoryIndexTest.java
+ * This class checks that the year and price ranges of the InventoryIndex stay right
+ * while cars are added, edited and removed one at a time, which changes the sorted
+ * slots in place. After every few random changes the ranges are compared with simply
+ * checking every car against the filter.
+ */
+
+package org.nicholas.guicardealershipsystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InventoryIndexTest {
+    private static final int LOADED_CARS = 5_000;
+    private static final int ROUNDS = 3_000;
+
+    @Test
+    void rangesMatchEveryCarAfterRandomChanges() {
+        for (long seed = 1; seed <= 5; seed++) {
+            checkRandomChanges(new Random(seed), "seed " + seed);
+        }
+    }
+
+    @Test
+    void rangesMatchWhenManyCarsHaveTheSameYearAndPrice() {
+        // Few different years and prices, so the cars with the same key have to be kept in slot order
+        Random random = new Random(42);
+        InventoryIndex index = new InventoryIndex();
+        Map<Integer, Car> cars = new HashMap<>();
+        List<Car> loaded = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            Car car = new Car(id, 2000 + random.nextInt(3), "Ford", "F-150", "Red", "V8", "Automatic", 1000 * random.nextInt(3));
+            loaded.add(car);
+            cars.put(id, car);
+        }
+        index.carsLoaded(loaded);
+        int nextId = 501;
+        for (int round = 0; round < ROUNDS; round++) {
+            if (random.nextBoolean()) {
+                Car car = new Car(nextId++, 2000 + random.nextInt(3), "Ford", "F-150", "Red", "V8", "Automatic", 1000 * random.nextInt(3));
+                cars.put(car.getId(), car);
+                index.carAdded(car);
+            } else if (!cars.isEmpty()) {
+                index.carsRemoved(List.of(cars.remove(pickId(cars, random))));
+            }
+            CarFilter filter = new CarFilter("", "", "", "").withYearRange(2001, 2002).withPriceRange(1000, 2000);
+            assertMatches(index, cars, filter, "round " + round);
+        }
+    }
+
+    private static void checkRandomChanges(Random random, String name) {
+        InventoryIndex index = new InventoryIndex();
+        Map<Integer, Car> cars = new HashMap<>();
+        List<Car> loaded = new ArrayList<>();
+        for (int id = 1; id <= LOADED_CARS; id++) {
+            Car car = randomCar(id, random);
+            loaded.add(car);
+            cars.put(id, car);
+        }
+        index.carsLoaded(loaded);
+        int nextId = LOADED_CARS + 1;
+        for (int round = 0; round < ROUNDS; round++) {
+            switch (random.nextInt(4)) {
+                case 0: {
+                    Car car = randomCar(nextId++, random);
+                    cars.put(car.getId(), car);
+                    index.carAdded(car);
+                    break;
+                }
+                case 1: {
+                    if (cars.isEmpty()) {
+                        break;
+                    }
+                    int id = pickId(cars, random);
+                    Car before = cars.get(id);
+                    Car car = randomCar(id, random);
+                    cars.put(id, car);
+                    index.carUpdated(before, car);
+                    break;
+                }
+                case 2: {
+                    List<Car> removed = new ArrayList<>();
+                    int count = 1 + random.nextInt(5);
+                    for (int i = 0; i < count && !cars.isEmpty(); i++) {
+                        removed.add(cars.remove(pickId(cars, random)));
+                    }
+                    index.carsRemoved(removed);
+                    break;
+                }
+                default:
+                    assertMatches(index, cars, randomFilter(random), name + ", round " + round);
+            }
+        }
+        assertEquals(cars.size(), index.size(), name);
+    }
+
+    private static CarFilter randomFilter(Random random) {
+        int fromYear = 1990 + random.nextInt(30);
+        int toYear = fromYear + random.nextInt(10);
+        double fromPrice = random.nextInt(50_000);
+        double toPrice = fromPrice + random.nextInt(30_000);
+        CarFilter filter = new CarFilter("", "", "", "");
+        switch (random.nextInt(3)) {
+            case 0:
+                return filter.withYearRange(fromYear, toYear);
+            case 1:
+                return filter.withPriceRange(fromPrice, toPrice);
+            default:
+                return filter.withYearRange(fromYear, toYear).withPriceRange(fromPrice, toPrice);
+        }
+    }
+
+    private static void assertMatches(InventoryIndex index, Map<Integer, Car> cars, CarFilter filter, String where) {
+        BitSet expected = new BitSet();
+        for (Car car : cars.values()) {
+            if (filter.matches(car)) {
+                expected.set(car.getId());
+            }
+        }
+        assertEquals(expected, index.findIds(filter), where);
+        assertEquals(expected.cardinality(), index.count(filter), where);
+    }
+
+    private static int pickId(Map<Integer, Car> cars, Random random) {
+        Integer[] ids = cars.keySet().toArray(new Integer[0]);
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static Car randomCar(int id, Random random) {
+        return new Car(id, 1990 + random.nextInt(35), "Make" + random.nextInt(5), "Model" + random.nextInt(20),
+                "Red", "V6", "Automatic", random.nextInt(80_000));
+    }
+}